@@ -0,0 +1,253 @@
+package aiproj.hexifence;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ *   TournamentReferee:
+ *      Plays a match of many games between two players, BLUE and RED,
+ *      several games at a time on a pool of threads. Every game creates
+ *      its own players, so nothing is shared between games but the counts
+ *      of wins, draws, errors and time, which are kept in atomic counters.
+ *      A player rejecting a move or throwing an exception only counts as
+ *      an error of that game, and the match carries on.
+ *
+ *      Usage: java aiproj.hexifence.TournamentReferee
+ *                 dimension player1 player2 [games] [threads]
+ *
+ *      By default 50 games are played on as many threads as there are
+ *      processors. Players keeping to a time budget get less done per move
+ *      when more games are played at once than there are processors
+ */
+public class TournamentReferee implements Piece {
+
+    public static final int DEFAULT_NUM_GAMES = 50;
+
+    // Result of a game a player rejected a move in, failed or disagreed
+    // on the winner
+    public static final int ERROR = INVALID;
+
+    // Games completed between reports of progress
+    private static final int GAMES_PER_REPORT = 10;
+
+    private int dimension;
+    private String bluePlayer;
+    private String redPlayer;
+    private int numGames;
+    private int threads;
+
+    private AtomicInteger gamesPlayed = new AtomicInteger();
+    private AtomicInteger blueWins = new AtomicInteger();
+    private AtomicInteger redWins = new AtomicInteger();
+    private AtomicInteger draws = new AtomicInteger();
+    private AtomicInteger errors = new AtomicInteger();
+
+    // Time of every game added up, and of the longest game, in ms
+    private AtomicLong totalGameMillis = new AtomicLong();
+    private AtomicLong longestGameMillis = new AtomicLong();
+
+    public TournamentReferee(int dimension, String bluePlayer,
+        String redPlayer, int numGames, int threads) {
+        this.dimension = dimension;
+        this.bluePlayer = bluePlayer;
+        this.redPlayer = redPlayer;
+        this.numGames = numGames;
+        this.threads = Math.max(1, threads);
+    }
+
+    /*
+     * Input arguments: first board size, second path of player1, third path
+     * of player2, then optionally the number of games and of threads
+     */
+    public static void main(String[] args) {
+        int numGames = (args.length > 3) ? Integer.parseInt(args[3]) :
+            DEFAULT_NUM_GAMES;
+        int threads = (args.length > 4) ? Integer.parseInt(args[4]) :
+            Runtime.getRuntime().availableProcessors();
+
+        TournamentReferee tournament = new TournamentReferee(
+            Integer.parseInt(args[0]), args[1], args[2], numGames, threads);
+
+        long startTime = System.currentTimeMillis();
+        tournament.play();
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        int played = tournament.getGamesPlayed();
+        System.out.println("Number of games played : " + played +
+            " on " + tournament.threads + " threads");
+        System.out.println();
+        System.out.println("BLUE - " + args[1]);
+        System.out.println("Number of wins : " + tournament.getBlueWins());
+        System.out.println("Probability of winning : " +
+            percentOf(tournament.getBlueWins(), played) + "%");
+        System.out.println();
+        System.out.println("RED - " + args[2]);
+        System.out.println("Number of wins  : " + tournament.getRedWins());
+        System.out.println("Probability of winning : " +
+            percentOf(tournament.getRedWins(), played) + "%");
+        System.out.println();
+        System.out.println("Draws : " + tournament.getDraws());
+        System.out.println("Games with errors : " + tournament.getErrors());
+        System.out.println();
+        System.out.println("Mean time taken for game (seconds) : " +
+            ((played == 0) ? 0 :
+            (double) tournament.getTotalGameMillis() / played / 1000));
+        System.out.println("Longest time taken for game (seconds) : " +
+            ((double) tournament.getLongestGameMillis() / 1000));
+        System.out.println("Total time taken (seconds) : " +
+            ((double) totalTime / 1000));
+    }
+
+    /* Play every game of the match, returning once all have finished
+     */
+    public void play() {
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+
+        for (int i = 0; i < this.numGames; i++) {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    TournamentReferee.this.playAndCount();
+                }
+            });
+        }
+        pool.shutdown();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getGamesPlayed() {
+        return this.gamesPlayed.get();
+    }
+
+    public int getBlueWins() {
+        return this.blueWins.get();
+    }
+
+    public int getRedWins() {
+        return this.redWins.get();
+    }
+
+    public int getDraws() {
+        return this.draws.get();
+    }
+
+    public int getErrors() {
+        return this.errors.get();
+    }
+
+    public long getTotalGameMillis() {
+        return this.totalGameMillis.get();
+    }
+
+    public long getLongestGameMillis() {
+        return this.longestGameMillis.get();
+    }
+
+    /* Play one game and add its result and time to the counters
+     */
+    private void playAndCount() {
+        long gameStartTime = System.currentTimeMillis();
+        int winner;
+
+        try {
+            winner = this.playGame();
+        } catch (Exception e) {
+            System.out.println("Exception: " + e);
+            winner = ERROR;
+        }
+
+        long gameTime = System.currentTimeMillis() - gameStartTime;
+        this.totalGameMillis.addAndGet(gameTime);
+        long longest = this.longestGameMillis.get();
+        while (gameTime > longest &&
+            !this.longestGameMillis.compareAndSet(longest, gameTime)) {
+            longest = this.longestGameMillis.get();
+        }
+
+        if (winner == BLUE) {
+            this.blueWins.incrementAndGet();
+        } else if (winner == RED) {
+            this.redWins.incrementAndGet();
+        } else if (winner == DEAD) {
+            this.draws.incrementAndGet();
+        } else {
+            this.errors.incrementAndGet();
+        }
+
+        int played = this.gamesPlayed.incrementAndGet();
+        if (played % GAMES_PER_REPORT == 0) {
+            System.out.println("Games played : " + played);
+        }
+    }
+
+    /* Play a game between new players, passing every move to the other
+     * player. A player capturing a cell moves again.
+     *
+     * Return the winner both players agree on, or ERROR
+     */
+    private int playGame() throws Exception {
+        Player[] players = {newPlayer(this.bluePlayer),
+            newPlayer(this.redPlayer)};
+
+        if (players[0].init(this.dimension, BLUE) < 0 ||
+            players[1].init(this.dimension, RED) < 0) {
+            return ERROR;
+        }
+
+        int emptyPieces = this.dimension * (9 * this.dimension - 3);
+        int turn = 0;
+        Move lastPlayedMove = players[turn].makeMove();
+        emptyPieces--;
+
+        while (true) {
+            Player opponent = players[1 - turn];
+            int opponentResult = opponent.opponentMove(lastPlayedMove);
+
+            if (opponentResult < 0) {
+                System.out.println("Exception: Player " + (2 - turn) +
+                    " rejected the move of player " + (turn + 1) + ".");
+                return ERROR;
+            }
+            if (emptyPieces == 0 || players[0].getWinner() != EMPTY ||
+                players[1].getWinner() != EMPTY) {
+                break;
+            }
+
+            if (opponentResult == 0) {
+                turn = 1 - turn;
+            }
+            lastPlayedMove = players[turn].makeMove();
+            emptyPieces--;
+        }
+
+        int winner = players[0].getWinner();
+        return (winner == players[1].getWinner()) ? winner : ERROR;
+    }
+
+    private static Player newPlayer(String className) throws Exception {
+        return (Player) Class.forName(className).getDeclaredConstructor()
+            .newInstance();
+    }
+
+    /* Return the count as a percentage of the games played, 0 if none were
+     */
+    private static float percentOf(int count, int played) {
+        return (played == 0) ? 0 : (float) count / played * 100;
+    }
+
+}
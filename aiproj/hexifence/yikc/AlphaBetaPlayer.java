@@ -10,9 +10,6 @@ import aiproj.hexifence.*;
 import java.io.PrintStream;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Random;
 import java.lang.Math;
 
@@ -22,16 +19,16 @@ import java.lang.Math;
  */
 public class AlphaBetaPlayer implements Player, Piece {
 
-    private Board board;
+    private BitBoard board;
     private int boardDimension;
     private int player;
-    private char cellIdentity;
-    private char edgeIdentity;
     private int oppPlayer;
-    private char oppCellIdentity;
-    private char oppEdgeIdentity;
-    private HashMap<Point, ArrayList<Point>> edgeAssociatedCells;
-    private HashMap<Move, Integer> bestMoveHistoryScore = new HashMap<Move, Integer>();
+
+    // Best edge found at the root by the last alpha-beta search
+    private int rootBestEdge;
+
+    // Edges of the board left to take at every ply of the search
+    private int[][] moveBuffers;
 
     @Override
     public int init(int n, int p) {
@@ -39,23 +36,13 @@ public class AlphaBetaPlayer implements Player, Piece {
             return INVALID;
         }
         this.boardDimension = n;
-        this.board = new Board(this.boardDimension);
-        this.edgeAssociatedCells = this.board.generateEdgeToCellsPoints();
+        this.board = new BitBoard(this.boardDimension);
 
         this.player = p;
-        if (p == BLUE) {
-            this.cellIdentity = Board.BLUE_CELL;
-            this.edgeIdentity = Board.BLUE_EDGE;
-            this.oppPlayer = RED;
-            this.oppCellIdentity = Board.RED_CELL;
-            this.oppEdgeIdentity = Board.RED_EDGE;
-        } else {
-            this.cellIdentity = Board.RED_CELL;
-            this.edgeIdentity = Board.RED_EDGE;
-            this.oppPlayer = BLUE;
-            this.oppCellIdentity = Board.BLUE_CELL;
-            this.oppEdgeIdentity = Board.BLUE_EDGE;
-        }
+        this.oppPlayer = (p == BLUE) ? RED : BLUE;
+
+        int numEdges = this.board.getLayout().getNumEdges();
+        this.moveBuffers = new int[numEdges + 1][numEdges];
 
         return 0;
     }
@@ -81,28 +68,25 @@ public class AlphaBetaPlayer implements Player, Piece {
             m.Col = capturePoint.getY();
         } else if (this.board.getPossibleMoves() <= THRESHOLD) {
             // Start invoking alpha beta pruning when no safe edges are left
-            char[][] boardState = this.board.getBoardIn2DArray();
-            HashMap<Integer, Move> myBestMove;
-
             // Print out time taken
             if (this.board.getPossibleMoves() >= 12) {
                 System.out.println("Possible moves : " + this.board.getPossibleMoves());
                 double startTime = System.currentTimeMillis();
-                myBestMove = alphaBeta(boardState, this.board.getPossibleMoves(), ALPHA, BETA, true);
+                alphaBeta(0, this.board.getPossibleMoves(), ALPHA, BETA, true);
                 double endTime = System.currentTimeMillis();
 
                 double totalTime = endTime - startTime;
                 System.out.println("Total time taken (seconds) : " + (totalTime/1000));
             } else {
-                myBestMove = alphaBeta(boardState, this.board.getPossibleMoves(), ALPHA, BETA, true);
+                alphaBeta(0, this.board.getPossibleMoves(), ALPHA, BETA, true);
             }
 
             // Return Move generated by minimax algorithm
-            m = myBestMove.get(myBestMove.keySet().toArray()[0]);
+            m = this.newMove(this.rootBestEdge);
         } else {
-            ArrayList<Edge> edgesToRandomFrom;
+            ArrayList<Point> edgesToRandomFrom;
 
-            ArrayList<Edge> safeEdges = this.board.getSafeEdges();
+            ArrayList<Point> safeEdges = this.board.getSafeEdges();
             if (safeEdges.size() == 0) {
                 edgesToRandomFrom = this.board.getAllUncapturedEdges();
             } else {
@@ -113,7 +97,7 @@ public class AlphaBetaPlayer implements Player, Piece {
 
             Random random = new Random();
             int indexEdgeChosen = random.nextInt(numEdges);
-            Point chosenPoint = edgesToRandomFrom.get(indexEdgeChosen).getPoint();
+            Point chosenPoint = edgesToRandomFrom.get(indexEdgeChosen);
 
             m.P = this.player;
             m.Row = chosenPoint.getX();
@@ -125,40 +109,42 @@ public class AlphaBetaPlayer implements Player, Piece {
     }
 
     /* Recursive minimax at level of depth for either maximizing or minimizing player.
-     * Return HashMap<Int, Move> of {bestScore -> bestMove}
+     * Moves are made and taken back on the board in place, ply is the number of
+     * moves made since the root.
+     * Return the best score, the best edge of the root is kept in rootBestEdge
      *  */
-    private HashMap<Integer, Move> alphaBeta(char[][] boardState, int possibleMoves, int alpha, int beta, boolean maxPlayer) {
+    private int alphaBeta(int ply, int possibleMoves, int alpha, int beta, boolean maxPlayer) {
         int bestValue;
         int player = maxPlayer ? this.player : this.oppPlayer;
-        Move bestMove = null;
-
-        ArrayList<Move> moves = generateMoves(boardState, player);
+        int bestEdge = BoardLayout.NO_EDGE;
 
         // If next move is empty or depth reaches the end
         if (possibleMoves == 0) {
-            bestValue = evaluateBoardState(boardState);
+            bestValue = evaluateBoardState();
         }
         else {
+            int[] edges = this.moveBuffers[ply];
+            int numMoves = this.board.generateUncapturedEdges(edges);
             bestValue = maxPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
 
-            // For each valid move, generate child node and recurse minimax
-            for (Move move: moves) {
-                // Try this move on the player
-            	Point capturedCellPoint = checkIfCaptureCell(move, boardState);
-                char[][] childBoard = generateChildBoardState(move, boardState, capturedCellPoint);
-            	HashMap<Integer, Move> result;
+            // For each valid move, make the move, recurse minimax and take it back
+            for (int i = 0; i < numMoves; i++) {
+                int edge = edges[i];
+                int numCaptured = this.board.makeMove(edge, player);
+                int resultValue;
+
+                // if player captured a cell, it's the player's turn again
+                if (numCaptured > 0) {
+                    resultValue = alphaBeta(ply + 1, possibleMoves-1, alpha, beta, maxPlayer);
+                } else {
+                    resultValue = alphaBeta(ply + 1, possibleMoves-1, alpha, beta, !maxPlayer);
+                }
+                this.board.unmakeMove();
+
                 if (maxPlayer) {
-                    // if player captured a cell, it's the player's turn again
-                	if (capturedCellPoint != null) {
-                		result = alphaBeta(childBoard, possibleMoves-1, alpha, beta, true);
-                	}
-                	else {
-                		result = alphaBeta(childBoard, possibleMoves-1, alpha, beta, false);
-                	}
-                    int resultValue = (int) result.keySet().toArray()[0];
                     if (resultValue > bestValue) {
                         bestValue = resultValue;
-                        bestMove = move;
+                        bestEdge = edge;
                     }
                     alpha = Math.max(alpha, bestValue);
                     if (beta <= alpha) {
@@ -166,16 +152,9 @@ public class AlphaBetaPlayer implements Player, Piece {
                     }
                 }
                 else {
-                	if (capturedCellPoint != null) {
-                		result = alphaBeta(childBoard, possibleMoves-1, alpha, beta, false);
-                	}
-                	else {
-                		result = alphaBeta(childBoard, possibleMoves-1, alpha, beta, true);
-                	}
-                    int resultValue = (int) result.keySet().toArray()[0];
                     if (resultValue < bestValue) {
                         bestValue = resultValue;
-                        bestMove = move;
+                        bestEdge = edge;
                     }
                     beta = Math.min(beta, bestValue);
                     if (beta <= alpha) {
@@ -185,111 +164,31 @@ public class AlphaBetaPlayer implements Player, Piece {
             }
         }
 
-        HashMap<Integer, Move> bestStrategy = new HashMap<Integer, Move>();
-        bestStrategy.put(bestValue, bestMove);
-        return bestStrategy;
-    }
-
-    /* Evaluate a boardState and return an integer that represents
-     * the utility of this player
-     * */
-    private int evaluateBoardState(char[][] boardState) {
-        int numCapturedCells = 0;
-        int boardSize = boardState.length;
-        int boardDimension = (boardSize + 1)/4;
-
-        int numToWin = Board.numberOfCells(boardDimension)/2 + 1;
-
-        for (int row = 0; row < boardSize; row++) {
-            for (int col = 0; col < boardSize; col++) {
-                if (boardState[row][col] == this.cellIdentity) {
-                    numCapturedCells++;
-                }
-            }
-        }
-
-        return numCapturedCells - numToWin;
-    }
-
-    /* Generate a list of all legal moves of existing boardState
-     * */
-    private ArrayList<Move> generateMoves(char[][] boardState, int player) {
-        ArrayList<Move> allLegalMoves = new ArrayList<Move>();
-        int boardSize = boardState.length;
-
-        for (int row = 0; row < boardSize; row++) {
-            for (int col = 0; col < boardSize; col++) {
-                // Represents a possible move that's available for capture
-                if (boardState[row][col] == Board.EMPTY_EDGE) {
-                    Move legalMove = new Move();
-                    legalMove.P = player;
-                    legalMove.Row = row;
-                    legalMove.Col = col;
-                    allLegalMoves.add(legalMove);
-                }
-            }
+        if (ply == 0) {
+            this.rootBestEdge = bestEdge;
         }
-        return allLegalMoves;
+        return bestValue;
     }
 
-    /* Generate board child node based on a new move applied by player
+    /* Evaluate the board and return an integer that represents
+     * the utility of this player
      * */
-    private char[][] generateChildBoardState(Move move, char[][] boardState, Point capturedCellPoint) {
-        // Copy board state over and make a move
-        char[][] newBoardState = this.copyBoard(boardState);
-        // If maxPlayer, means it is this player's turn, so move was made by opponent
-        newBoardState[move.Row][move.Col] = move.P == this.player ? this.edgeIdentity : this.oppEdgeIdentity;
-        if (capturedCellPoint != null) {
-        	newBoardState[capturedCellPoint.getX()][capturedCellPoint.getY()] = move.P == this.player ? this.cellIdentity : this.oppCellIdentity;
-        }
+    private int evaluateBoardState() {
+        int numToWin = Board.numberOfCells(this.boardDimension)/2 + 1;
 
-        return newBoardState;
+        return this.board.getPlayerCells(this.player) - numToWin;
     }
 
-    /* Check if move is a capturing cell move
+    /* Return the move of this player taking the edge
      * */
-    Point checkIfCaptureCell(Move move, char[][] boardState) {
-    	char[][] newBoardState = this.copyBoard(boardState);
-    	newBoardState[move.Row][move.Col] = move.P == this.player ? this.edgeIdentity : this.oppEdgeIdentity;
-
-        // Get the cell point associated with the captured edge
-        ArrayList<Point> cellPointsOfEdge = new ArrayList<Point>();
-        for (Point edgePoint : edgeAssociatedCells.keySet()) {
-            if (edgePoint.getX() == move.Row && edgePoint.getY() == move.Col) {
-                cellPointsOfEdge = edgeAssociatedCells.get(edgePoint);
-            }
-        }
-
-        // Loop through the associated cell, and get all the edges that belong to the cell
-        for (Point cellPoint: cellPointsOfEdge) {
-            ArrayList<Point> allAssociatedEdgePoints = Cell.getPointOfCellEdges(cellPoint);
-            int numEdgeCaptured = 0;
-
-            // Increment counter if edges are captured
-            for (Point edgePoint: allAssociatedEdgePoints) {
-                if (newBoardState[edgePoint.getX()][edgePoint.getY()] != Board.EMPTY_EDGE) {
-                    numEdgeCaptured++;
-                }
-            }
-
-            // If fully captured and cell point is not labeled, this suggests that
-            // the move made has captured the cell
-            char cellValue = newBoardState[cellPoint.getX()][cellPoint.getY()];
-            if (numEdgeCaptured == Board.HEXAGON && cellValue == Board.NA_POINT) {
-            	// If maxPlayer, means it is this player's turn, so move was made by opponent
-            	return new Point(cellPoint.getX(), cellPoint.getY());
-            }
-        }
-        return null;
-    }
-
-    private char[][] copyBoard(char[][] boardState) {
-        int size = boardDimension*4 - 1;
-        char[][] dupBoard = new char[size][size];
-        for (int i=0; i < size; i++) {
-            dupBoard[i] = Arrays.copyOf(boardState[i], size);
-        }
-        return dupBoard;
+    private Move newMove(int edge) {
+        Point edgePoint = this.board.getLayout().getEdgePoint(edge);
+        Move move = new Move();
+
+        move.P = this.player;
+        move.Row = edgePoint.getX();
+        move.Col = edgePoint.getY();
+        return move;
     }
 
     /* Function called by referee to inform the player about the opponent's move
@@ -0,0 +1,1123 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import aiproj.hexifence.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/* BitBoard class
+ * Bitboard implementation of Board. Edges and cells are referred to by their
+ * index in the BoardLayout, taken edges are kept in long[] bitsets and every
+ * cell keeps a 6-bit mask of its uncaptured sides, so the number of sides
+ * remaining is a popcount
+ */
+public class BitBoard implements Piece {
+
+    public static final int ALL_SIDES = (1 << Cell.MAX_EDGES) - 1;
+    public static final int NO_CELL = BoardLayout.NO_CELL;
+
+    // Fewest sides a cell can have left for its edges to be safe
+    private static final int MIN_SAFE_SIDES = 3;
+
+    private Point lastOpponentPoint;
+
+    private BoardLayout layout;
+    private int possibleMoves;
+
+    // Bitsets over edge indexes
+    private long[] capturedEdges;
+    private long[] redEdges;
+    private long[] blueEdges;
+
+    // Bitsets over cell indexes
+    private long[] redCells;
+    private long[] blueCells;
+
+    // Bit i is set while side i of the cell is uncaptured
+    private int[] cellSides;
+
+    // Safe edges and capturable cells, those with exactly one side left,
+    // kept up to date by every move. An edge is only safe while its cells
+    // have at least three sides left, so a move only changes the edges of
+    // a cell whose sides left cross between two and three
+    private long[] safeEdges;
+    private int numSafeEdges;
+    private long[] capturableCells;
+    private int numCapturableCells;
+
+    // Chains and loops of the endgame, kept up to date by every move once
+    // they are first asked for, or null
+    private ChainAnalyser chains;
+
+    // Scratch undo stack of cell sides for countCellsConceded
+    private int[] scratchCells;
+    private int[] scratchSides;
+    private int numScratch;
+
+    // Player whose turn it is, BLUE makes the first move of a game
+    private int sideToMove;
+
+    // Undo stack of the edges taken, who took them and the side to move
+    // before each move. A game can never be longer than the number of edges
+    private int[] moveStack;
+    private int[] moverStack;
+    private int[] sideStack;
+    private int ply;
+
+    // Zobrist hashes of the position, kept up to date by every move. hash
+    // includes who took each edge, the position keys only which edges are
+    // taken, as the owner of an edge does not change the value of a
+    // position. There is a position key under every symmetry of the board,
+    // the first being the identity, so symmetric positions can share the
+    // smallest of them
+    private Zobrist zobrist;
+    private long hash;
+    private long[] symmetricKeys;
+
+    // When set, every move checks the hashes and the safe edges and
+    // capturable cells against a full recomputation
+    private static boolean verifyHash =
+        Boolean.getBoolean("hexifence.verifyHash");
+
+    public BitBoard(int boardDimension) {
+        this.layout = BoardLayout.forDimension(boardDimension);
+
+        int edgeWords = this.layout.getEdgeWords();
+        int cellWords = this.layout.getCellWords();
+
+        this.capturedEdges = new long[edgeWords];
+        this.redEdges = new long[edgeWords];
+        this.blueEdges = new long[edgeWords];
+        this.redCells = new long[cellWords];
+        this.blueCells = new long[cellWords];
+
+        this.cellSides = new int[this.layout.getNumCells()];
+        for (int c = 0; c < this.cellSides.length; c++) {
+            this.cellSides[c] = ALL_SIDES;
+        }
+
+        this.possibleMoves = this.layout.getNumEdges();
+
+        this.safeEdges = new long[edgeWords];
+        this.capturableCells = new long[cellWords];
+        for (int c = 0; c < this.cellSides.length; c++) {
+            this.refreshCellEdges(c);
+        }
+
+        this.scratchCells = new int[this.possibleMoves *
+            BoardLayout.MAX_CELLS_PER_EDGE];
+        this.scratchSides = new int[this.scratchCells.length];
+
+        this.sideToMove = BLUE;
+        this.moveStack = new int[this.possibleMoves];
+        this.moverStack = new int[this.possibleMoves];
+        this.sideStack = new int[this.possibleMoves];
+        this.ply = 0;
+
+        this.zobrist = Zobrist.forDimension(boardDimension);
+        this.hash = this.computeHash(true);
+        this.symmetricKeys = new long[BoardLayout.NUM_SYMMETRIES];
+        for (int sym = 0; sym < BoardLayout.NUM_SYMMETRIES; sym++) {
+            this.symmetricKeys[sym] = this.computeSymmetricKey(sym);
+        }
+    }
+
+    /* Create a copy of a board, including its undo stack, that can be
+     * searched independently of it
+     */
+    public BitBoard(BitBoard other) {
+        this.layout = other.layout;
+        this.zobrist = other.zobrist;
+
+        this.capturedEdges = new long[other.capturedEdges.length];
+        this.redEdges = new long[other.redEdges.length];
+        this.blueEdges = new long[other.blueEdges.length];
+        this.redCells = new long[other.redCells.length];
+        this.blueCells = new long[other.blueCells.length];
+        this.cellSides = new int[other.cellSides.length];
+        this.safeEdges = new long[other.safeEdges.length];
+        this.capturableCells = new long[other.capturableCells.length];
+        this.moveStack = new int[other.moveStack.length];
+        this.moverStack = new int[other.moverStack.length];
+        this.sideStack = new int[other.sideStack.length];
+        this.scratchCells = new int[other.scratchCells.length];
+        this.scratchSides = new int[other.scratchSides.length];
+        this.symmetricKeys = new long[other.symmetricKeys.length];
+
+        this.copyFrom(other);
+    }
+
+    /* Overwrite this board with the position of another board of the same
+     * dimension
+     */
+    public void copyFrom(BitBoard other) {
+        if (other.layout != this.layout) {
+            throw new IllegalArgumentException(
+                "Cannot copy a board of another dimension");
+        }
+
+        System.arraycopy(other.capturedEdges, 0, this.capturedEdges, 0,
+            this.capturedEdges.length);
+        System.arraycopy(other.redEdges, 0, this.redEdges, 0,
+            this.redEdges.length);
+        System.arraycopy(other.blueEdges, 0, this.blueEdges, 0,
+            this.blueEdges.length);
+        System.arraycopy(other.redCells, 0, this.redCells, 0,
+            this.redCells.length);
+        System.arraycopy(other.blueCells, 0, this.blueCells, 0,
+            this.blueCells.length);
+        System.arraycopy(other.cellSides, 0, this.cellSides, 0,
+            this.cellSides.length);
+        System.arraycopy(other.safeEdges, 0, this.safeEdges, 0,
+            this.safeEdges.length);
+        System.arraycopy(other.capturableCells, 0, this.capturableCells, 0,
+            this.capturableCells.length);
+        System.arraycopy(other.moveStack, 0, this.moveStack, 0, other.ply);
+        System.arraycopy(other.moverStack, 0, this.moverStack, 0, other.ply);
+        System.arraycopy(other.sideStack, 0, this.sideStack, 0, other.ply);
+
+        this.lastOpponentPoint = other.lastOpponentPoint;
+        this.possibleMoves = other.possibleMoves;
+        this.numSafeEdges = other.numSafeEdges;
+        this.numCapturableCells = other.numCapturableCells;
+        this.sideToMove = other.sideToMove;
+        this.ply = other.ply;
+        this.hash = other.hash;
+        System.arraycopy(other.symmetricKeys, 0, this.symmetricKeys, 0,
+            this.symmetricKeys.length);
+
+        if (this.chains != null) {
+            this.chains.rebuild();
+        }
+    }
+
+    public BoardLayout getLayout() {
+        return this.layout;
+    }
+
+    public int getBoardDimension() {
+        return this.layout.getBoardDimension();
+    }
+
+    public int getPossibleMoves() {
+        return this.possibleMoves;
+    }
+
+    public int getSideToMove() {
+        return this.sideToMove;
+    }
+
+    public long getHash() {
+        return this.hash;
+    }
+
+    public long getPositionKey() {
+        return this.symmetricKeys[0];
+    }
+
+    /* Return the position key under a symmetry of the board, the key of the
+     * position the symmetry maps this one to
+     */
+    public long getSymmetricKey(int symmetry) {
+        return this.symmetricKeys[symmetry];
+    }
+
+    /* Return the symmetry under which the position key is smallest, the
+     * first of them if several are. Every symmetric position has the same
+     * smallest key, so that key can be used in their place
+     */
+    public int getCanonicalSymmetry() {
+        int best = 0;
+
+        for (int sym = 1; sym < BoardLayout.NUM_SYMMETRIES; sym++) {
+            if (this.symmetricKeys[sym] < this.symmetricKeys[best]) {
+                best = sym;
+            }
+        }
+        return best;
+    }
+
+    /* Return the smallest position key under every symmetry of the board
+     */
+    public long getCanonicalKey() {
+        return this.symmetricKeys[this.getCanonicalSymmetry()];
+    }
+
+    public static void setVerifyHash(boolean verify) {
+        verifyHash = verify;
+    }
+
+    /* Number of moves on the undo stack
+     */
+    public int getPly() {
+        return this.ply;
+    }
+
+    /* Return the edge of the last move on the undo stack, or
+     * BoardLayout.NO_EDGE if it is empty
+     */
+    public int getLastEdge() {
+        return (this.ply > 0) ? this.moveStack[this.ply - 1] :
+            BoardLayout.NO_EDGE;
+    }
+
+    public void setLastOpponentPoint(Point point) {
+        this.lastOpponentPoint = point;
+    }
+
+    /* Return true if the edge has been captured by either player
+     */
+    public boolean isEdgeCaptured(int edge) {
+        return (this.capturedEdges[edge >>> 6] & (1L << edge)) != 0;
+    }
+
+    /* Return the player who captured the edge, or EMPTY
+     */
+    public int getEdgeOwner(int edge) {
+        long bit = 1L << edge;
+
+        if ((this.redEdges[edge >>> 6] & bit) != 0) {
+            return RED;
+        } else if ((this.blueEdges[edge >>> 6] & bit) != 0) {
+            return BLUE;
+        }
+        return EMPTY;
+    }
+
+    /* Return the player who captured the cell, or EMPTY
+     */
+    public int getCellOwner(int cell) {
+        long bit = 1L << cell;
+
+        if ((this.redCells[cell >>> 6] & bit) != 0) {
+            return RED;
+        } else if ((this.blueCells[cell >>> 6] & bit) != 0) {
+            return BLUE;
+        }
+        return EMPTY;
+    }
+
+    public int getNumSidesUncaptured(int cell) {
+        return Integer.bitCount(this.cellSides[cell]);
+    }
+
+    /* Return the mask of the uncaptured sides of a cell, bit i being side i
+     */
+    public int getCellSides(int cell) {
+        return this.cellSides[cell];
+    }
+
+    /* Return the chains and loops of the board, which are kept up to date
+     * by every move from the first time they are asked for
+     */
+    public ChainAnalyser getChains() {
+        if (this.chains == null) {
+            this.chains = new ChainAnalyser(this);
+        }
+        return this.chains;
+    }
+
+    /* Return the uncaptured edge of a cell that has exactly one side left
+     */
+    public int getLastUncapturedEdge(int cell) {
+        int side = Integer.numberOfTrailingZeros(this.cellSides[cell]);
+        return this.layout.getCellEdges(cell)[side];
+    }
+
+    /* Return the edge index of a point, or BoardLayout.NO_EDGE
+     */
+    public int getEdgeIndex(Point p) {
+        if (p == null) {
+            return BoardLayout.NO_EDGE;
+        }
+        return this.layout.getEdgeIndex(p.getX(), p.getY());
+    }
+
+    /* A class method that generates a dictionary of each edge point on board
+     * to its respective cell(s) point(s)
+     */
+    public HashMap<Point, ArrayList<Point>> generateEdgeToCellsPoints() {
+        HashMap<Point, ArrayList<Point>> edgeToCellPoints = new HashMap<Point,
+            ArrayList<Point>>();
+
+        for (int e = 0; e < this.layout.getNumEdges(); e++) {
+            int[] edgeCells = this.layout.getEdgeCells(e);
+            ArrayList<Point> cellPoints = new ArrayList<Point>(
+                edgeCells.length);
+
+            for (int c: edgeCells) {
+                cellPoints.add(this.layout.getCellPoint(c));
+            }
+            edgeToCellPoints.put(this.layout.getEdgePoint(e), cellPoints);
+        }
+
+        return edgeToCellPoints;
+    }
+
+    /* Returns maximum number of cells that can be captured with one move
+     */
+    public int maxCellCaptureByOneMove() {
+        for (int w = 0; w < this.capturableCells.length; w++) {
+            long capturable = this.capturableCells[w];
+            while (capturable != 0) {
+                int c = (w << 6) + Long.numberOfTrailingZeros(capturable);
+                capturable &= capturable - 1;
+
+                // Check if the last edge also completes the adjacent cell
+                int edge = this.getLastUncapturedEdge(c);
+                for (int adjacentCell: this.layout.getEdgeCells(edge)) {
+                    if (adjacentCell != c &&
+                        this.getNumSidesUncaptured(adjacentCell) == 1) {
+                        return 2;
+                    }
+                }
+            }
+        }
+
+        return (this.numCapturableCells > 0) ? 1 : 0;
+    }
+
+    /* Return total number of cells available for capture
+     */
+    public int numCellsAvailableForCapture() {
+        return this.numCapturableCells;
+    }
+
+    /* Return true if point is a valid empty edge point on the board
+     */
+    public boolean validPoint(Point point) {
+        int edge = this.getEdgeIndex(point);
+
+        return edge != BoardLayout.NO_EDGE && !this.isEdgeCaptured(edge);
+    }
+
+    /* Return true if point is an edge point, false otherwise
+     */
+    public boolean isEdgePoint(Point point) {
+        return this.getEdgeIndex(point) != BoardLayout.NO_EDGE;
+    }
+
+    /* Return true if the point captures at least one cell
+     */
+    public boolean isCapturingPoint(Point point) {
+        return this.isCapturingEdge(this.getEdgeIndex(point));
+    }
+
+    /* Return true if taking the edge captures at least one cell
+     */
+    public boolean isCapturingEdge(int edge) {
+        for (int c: this.layout.getEdgeCells(edge)) {
+            if (this.getNumSidesUncaptured(c) == 1) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /* Returns number of cells captured by a player
+     */
+    public int getPlayerCells(int player) {
+        long[] cells = (player == RED) ? this.redCells : this.blueCells;
+        int count = 0;
+
+        for (long word: cells) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /* Returns the winner of the game
+     */
+    public int getWinner() {
+        if (this.getPossibleMoves() > 0) {
+            // Game has not ended yet
+            return EMPTY;
+        } else if (!this.isEdgePoint(this.lastOpponentPoint)) {
+            // Previous move of opponent is invalid
+            return INVALID;
+        }
+
+        int redCells = this.getPlayerCells(RED);
+        int blueCells = this.getPlayerCells(BLUE);
+
+        if (redCells == blueCells) {
+            // Game is a draw, which shouldn't occur as there are an odd
+            // number of cells
+            return DEAD;
+        } else if (redCells > blueCells) {
+            return RED;
+        } else {
+            return BLUE;
+        }
+    }
+
+    /* Updates the state of the game with the move made
+     */
+    public void update(Move m) {
+        this.makeMove(this.layout.getEdgeIndex(m.Row, m.Col), m.P);
+    }
+
+    /* Capture an edge for a player, capturing any cell it completes, and
+     * push the move on the undo stack. Return the number of cells captured
+     */
+    public int makeMove(int edge, int player) {
+        int word = edge >>> 6;
+        long bit = 1L << edge;
+        int numCaptured = 0;
+
+        this.moveStack[this.ply] = edge;
+        this.moverStack[this.ply] = player;
+        this.sideStack[this.ply] = this.sideToMove;
+        this.ply++;
+
+        this.capturedEdges[word] |= bit;
+        if (player == RED) {
+            this.redEdges[word] |= bit;
+        } else {
+            this.blueEdges[word] |= bit;
+        }
+        this.possibleMoves--;
+        this.hash ^= this.zobrist.getEdgeKey(edge, player);
+        this.toggleTakenKey(edge);
+
+        // Update the cells where the edge belongs to
+        int[] cells = this.layout.getEdgeCells(edge);
+        int[] sides = this.layout.getEdgeCellSides(edge);
+        for (int i = 0; i < cells.length; i++) {
+            int c = cells[i];
+            this.cellSides[c] &= ~(1 << sides[i]);
+
+            if (this.cellSides[c] == 0) {
+                if (player == RED) {
+                    this.redCells[c >>> 6] |= 1L << c;
+                } else {
+                    this.blueCells[c >>> 6] |= 1L << c;
+                }
+                this.toggleCellKey(c, player);
+                numCaptured++;
+            }
+
+            int sidesLeft = Integer.bitCount(this.cellSides[c]);
+            if (sidesLeft <= 1) {
+                this.setCapturable(c, sidesLeft == 1);
+            } else if (sidesLeft == MIN_SAFE_SIDES - 1) {
+                this.clearSafeEdges(c);
+            }
+        }
+        this.setSafe(edge, false);
+        if (this.chains != null) {
+            this.chains.update(edge);
+        }
+
+        // A player who captures a cell moves again
+        this.setSideToMove((numCaptured > 0) ? player : opponentOf(player));
+
+        if (verifyHash) {
+            this.checkHash();
+            this.checkSafeEdges();
+            if (this.chains != null) {
+                this.chains.check();
+            }
+        }
+        return numCaptured;
+    }
+
+    /* Take back the last move made, releasing any cell it captured and
+     * restoring the side to move
+     */
+    public void unmakeMove() {
+        this.ply--;
+        int edge = this.moveStack[this.ply];
+        int player = this.moverStack[this.ply];
+        int word = edge >>> 6;
+        long bit = 1L << edge;
+
+        // A cell with no sides left was completed by this edge, as moves
+        // are taken back in the reverse order they were made
+        int[] cells = this.layout.getEdgeCells(edge);
+        int[] sides = this.layout.getEdgeCellSides(edge);
+        for (int i = 0; i < cells.length; i++) {
+            int c = cells[i];
+
+            if (this.cellSides[c] == 0) {
+                if (player == RED) {
+                    this.redCells[c >>> 6] &= ~(1L << c);
+                } else {
+                    this.blueCells[c >>> 6] &= ~(1L << c);
+                }
+                this.toggleCellKey(c, player);
+            }
+            this.cellSides[c] |= 1 << sides[i];
+        }
+
+        this.capturedEdges[word] &= ~bit;
+        if (player == RED) {
+            this.redEdges[word] &= ~bit;
+        } else {
+            this.blueEdges[word] &= ~bit;
+        }
+        boolean safe = true;
+        for (int c: cells) {
+            int sidesLeft = Integer.bitCount(this.cellSides[c]);
+            if (sidesLeft <= 2) {
+                this.setCapturable(c, sidesLeft == 1);
+            } else if (sidesLeft == MIN_SAFE_SIDES) {
+                this.refreshCellEdges(c);
+            }
+            safe &= sidesLeft >= MIN_SAFE_SIDES;
+        }
+        this.setSafe(edge, safe);
+        if (this.chains != null) {
+            this.chains.update(edge);
+        }
+        this.possibleMoves++;
+        this.hash ^= this.zobrist.getEdgeKey(edge, player);
+        this.toggleTakenKey(edge);
+
+        this.setSideToMove(this.sideStack[this.ply]);
+
+        if (verifyHash) {
+            this.checkHash();
+            this.checkSafeEdges();
+            if (this.chains != null) {
+                this.chains.check();
+            }
+        }
+    }
+
+    private void setCapturable(int cell, boolean capturable) {
+        long bit = 1L << cell;
+
+        if (capturable != ((this.capturableCells[cell >>> 6] & bit) != 0)) {
+            this.capturableCells[cell >>> 6] ^= bit;
+            this.numCapturableCells += capturable ? 1 : -1;
+        }
+    }
+
+    private void setSafe(int edge, boolean safe) {
+        long bit = 1L << edge;
+
+        if (safe != ((this.safeEdges[edge >>> 6] & bit) != 0)) {
+            this.safeEdges[edge >>> 6] ^= bit;
+            this.numSafeEdges += safe ? 1 : -1;
+        }
+    }
+
+    /* No edge of a cell with fewer than MIN_SAFE_SIDES sides left is safe
+     */
+    private void clearSafeEdges(int cell) {
+        for (int e: this.layout.getCellEdges(cell)) {
+            this.setSafe(e, false);
+        }
+    }
+
+    /* Work out again whether each edge of the cell is safe, once the cell
+     * has MIN_SAFE_SIDES sides left again
+     */
+    private void refreshCellEdges(int cell) {
+        for (int e: this.layout.getCellEdges(cell)) {
+            this.setSafe(e, this.computeSafeEdge(e));
+        }
+    }
+
+    /* Return true if the edge is uncaptured and taking it would not lead to
+     * an opponent capturing a cell in the next turn, from the cells' sides
+     */
+    private boolean computeSafeEdge(int edge) {
+        if (this.isEdgeCaptured(edge)) {
+            return false;
+        }
+
+        for (int c: this.layout.getEdgeCells(edge)) {
+            if (this.getNumSidesUncaptured(c) < MIN_SAFE_SIDES) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /* Verify the incrementally updated safe edges and capturable cells
+     * against a full recomputation
+     */
+    public void checkSafeEdges() {
+        int numSafe = 0;
+        int numCapturable = 0;
+
+        for (int e = 0; e < this.layout.getNumEdges(); e++) {
+            boolean safe = this.computeSafeEdge(e);
+            if (safe != this.isSafeEdge(e)) {
+                throw new IllegalStateException("Safe edge " + e +
+                    " out of date at ply " + this.ply);
+            }
+            numSafe += safe ? 1 : 0;
+        }
+        for (int c = 0; c < this.layout.getNumCells(); c++) {
+            boolean capturable = this.getNumSidesUncaptured(c) == 1;
+            if (capturable !=
+                ((this.capturableCells[c >>> 6] & (1L << c)) != 0)) {
+                throw new IllegalStateException("Capturable cell " + c +
+                    " out of date at ply " + this.ply);
+            }
+            numCapturable += capturable ? 1 : 0;
+        }
+        if (numSafe != this.numSafeEdges ||
+            numCapturable != this.numCapturableCells) {
+            throw new IllegalStateException(
+                "Safe edge or capturable cell count out of date at ply " +
+                this.ply);
+        }
+    }
+
+    /* Change the side to move, updating the hashes
+     */
+    private void setSideToMove(int player) {
+        long sideKeys = this.zobrist.getSideKey(this.sideToMove) ^
+            this.zobrist.getSideKey(player);
+
+        // The side to move is the same under every symmetry
+        this.hash ^= sideKeys;
+        for (int sym = 0; sym < BoardLayout.NUM_SYMMETRIES; sym++) {
+            this.symmetricKeys[sym] ^= sideKeys;
+        }
+        this.sideToMove = player;
+    }
+
+    /* Add or remove a taken edge from the position keys
+     */
+    private void toggleTakenKey(int edge) {
+        for (int sym = 0; sym < BoardLayout.NUM_SYMMETRIES; sym++) {
+            this.symmetricKeys[sym] ^=
+                this.zobrist.getSymmetricTakenKey(edge, sym);
+        }
+    }
+
+    /* Add or remove a captured cell from the hashes
+     */
+    private void toggleCellKey(int cell, int player) {
+        this.hash ^= this.zobrist.getCellKey(cell, player);
+        for (int sym = 0; sym < BoardLayout.NUM_SYMMETRIES; sym++) {
+            this.symmetricKeys[sym] ^=
+                this.zobrist.getSymmetricCellKey(cell, player, sym);
+        }
+    }
+
+    /* Compute a hash of the position from scratch. The owners of the edges
+     * are only included if withEdgeOwners is set
+     */
+    public long computeHash(boolean withEdgeOwners) {
+        long key = this.zobrist.getSideKey(this.sideToMove);
+
+        for (int e = 0; e < this.layout.getNumEdges(); e++) {
+            int owner = this.getEdgeOwner(e);
+            if (owner != EMPTY) {
+                key ^= withEdgeOwners ? this.zobrist.getEdgeKey(e, owner) :
+                    this.zobrist.getTakenKey(e);
+            }
+        }
+        for (int c = 0; c < this.layout.getNumCells(); c++) {
+            int owner = this.getCellOwner(c);
+            if (owner != EMPTY) {
+                key ^= this.zobrist.getCellKey(c, owner);
+            }
+        }
+
+        return key;
+    }
+
+    /* Compute the position key under a symmetry from scratch
+     */
+    private long computeSymmetricKey(int symmetry) {
+        long key = this.zobrist.getSideKey(this.sideToMove);
+
+        for (int e = 0; e < this.layout.getNumEdges(); e++) {
+            if (this.isEdgeCaptured(e)) {
+                key ^= this.zobrist.getSymmetricTakenKey(e, symmetry);
+            }
+        }
+        for (int c = 0; c < this.layout.getNumCells(); c++) {
+            int owner = this.getCellOwner(c);
+            if (owner != EMPTY) {
+                key ^= this.zobrist.getSymmetricCellKey(c, owner, symmetry);
+            }
+        }
+
+        return key;
+    }
+
+    /* Verify the incrementally updated hashes against a full recomputation
+     */
+    public void checkHash() {
+        if (this.hash != this.computeHash(true) ||
+            this.getPositionKey() != this.computeHash(false)) {
+            throw new IllegalStateException("Zobrist hash out of date at ply "
+                + this.ply);
+        }
+        for (int sym = 0; sym < BoardLayout.NUM_SYMMETRIES; sym++) {
+            if (this.symmetricKeys[sym] != this.computeSymmetricKey(sym)) {
+                throw new IllegalStateException("Position key under " +
+                    "symmetry " + sym + " out of date at ply " + this.ply);
+            }
+        }
+    }
+
+    /* Take back moves until the undo stack is back at ply
+     */
+    public void unmakeMoves(int ply) {
+        while (this.ply > ply) {
+            this.unmakeMove();
+        }
+    }
+
+    /* Return the number of cells the opponent of player can capture in a
+     * row if player takes the edge. The board is left unchanged.
+     *
+     * The chains answer at once when they are kept and can tell. Otherwise
+     * only the sides of the cells are played out, on a scratch undo stack,
+     * so counting does not pay for the hashes and safe edges of full moves
+     */
+    public int countCellsConceded(int edge, int player) {
+        if (this.chains != null) {
+            int numCells = this.chains.getCellsConceded(edge);
+
+            if (numCells != ChainAnalyser.UNKNOWN) {
+                if (verifyHash && numCells != this.playOutConceded(edge)) {
+                    throw new IllegalStateException("Chains concede " +
+                        numCells + " cells for edge " + edge + " at ply " +
+                        this.ply);
+                }
+                return numCells;
+            }
+        }
+        return this.playOutConceded(edge);
+    }
+
+    /* Count the cells conceded by the edge by playing out the sides of the
+     * cells
+     */
+    private int playOutConceded(int edge) {
+        int[] cells = this.layout.getEdgeCells(edge);
+        int numCells = 0;
+
+        this.numScratch = 0;
+        this.takeSides(edge);
+        for (int c: cells) {
+            while (c != NO_CELL && Integer.bitCount(this.cellSides[c]) == 1) {
+                int lastEdge = this.getLastUncapturedEdge(c);
+                numCells += this.takeSides(lastEdge);
+
+                // Carry on into the other cell of the edge, if it is not
+                // captured yet
+                int nextCell = NO_CELL;
+                for (int other: this.layout.getEdgeCells(lastEdge)) {
+                    if (other != c && this.cellSides[other] != 0) {
+                        nextCell = other;
+                    }
+                }
+                c = nextCell;
+            }
+        }
+
+        while (this.numScratch > 0) {
+            this.numScratch--;
+            this.cellSides[this.scratchCells[this.numScratch]] =
+                this.scratchSides[this.numScratch];
+        }
+        return numCells;
+    }
+
+    /* Remove the edge from the sides of its cells, saving the sides on the
+     * scratch undo stack. Return the number of cells it completes
+     */
+    private int takeSides(int edge) {
+        int[] cells = this.layout.getEdgeCells(edge);
+        int[] sides = this.layout.getEdgeCellSides(edge);
+        int numCompleted = 0;
+
+        for (int i = 0; i < cells.length; i++) {
+            int c = cells[i];
+
+            this.scratchCells[this.numScratch] = c;
+            this.scratchSides[this.numScratch] = this.cellSides[c];
+            this.numScratch++;
+
+            this.cellSides[c] &= ~(1 << sides[i]);
+            if (this.cellSides[c] == 0) {
+                numCompleted++;
+            }
+        }
+        return numCompleted;
+    }
+
+    /* Capture cells for player starting from a cell, following the chain
+     * of cells that each become capturable in turn. Return the number of
+     * cells captured
+     */
+    public int captureChain(int cell, int player) {
+        int numCells = 0;
+
+        while (cell != NO_CELL && this.getNumSidesUncaptured(cell) == 1) {
+            int edge = this.getLastUncapturedEdge(cell);
+            numCells += this.makeMove(edge, player);
+
+            // Carry on into the other cell of the edge, if it is not
+            // captured yet
+            int nextCell = NO_CELL;
+            for (int c: this.layout.getEdgeCells(edge)) {
+                if (c != cell && this.cellSides[c] != 0) {
+                    nextCell = c;
+                }
+            }
+            cell = nextCell;
+        }
+
+        return numCells;
+    }
+
+    /* Return the uncaptured edge that concedes the fewest cells to the
+     * opponent of player, or BoardLayout.NO_EDGE if there are none
+     */
+    public int getCheapestEdge(int player) {
+        int cheapestEdge = BoardLayout.NO_EDGE;
+        int fewestCells = Integer.MAX_VALUE;
+
+        for (int w = 0; w < this.capturedEdges.length; w++) {
+            long uncaptured = this.getUncapturedWord(w);
+            while (uncaptured != 0) {
+                int e = (w << 6) + Long.numberOfTrailingZeros(uncaptured);
+                uncaptured &= uncaptured - 1;
+
+                int numCells = this.countCellsConceded(e, player);
+                if (numCells < fewestCells) {
+                    fewestCells = numCells;
+                    cheapestEdge = e;
+                }
+            }
+        }
+
+        return cheapestEdge;
+    }
+
+    /* Return the edge that completes a capturable cell, or
+     * BoardLayout.NO_EDGE if no cell can be captured
+     */
+    public int getCapturingEdge() {
+        int cell = this.getFirstCapturableCell();
+
+        return (cell == NO_CELL) ? BoardLayout.NO_EDGE :
+            this.getLastUncapturedEdge(cell);
+    }
+
+    /* Return the first cell in index order with one side left, or NO_CELL
+     */
+    public int getFirstCapturableCell() {
+        for (int w = 0; w < this.capturableCells.length; w++) {
+            if (this.capturableCells[w] != 0) {
+                return (w << 6) +
+                    Long.numberOfTrailingZeros(this.capturableCells[w]);
+            }
+        }
+        return NO_CELL;
+    }
+
+    public static int opponentOf(int player) {
+        return (player == BLUE) ? RED : BLUE;
+    }
+
+    /* Return 2D char array that represents the current
+     * board state of the game
+     * */
+    public char[][] getBoardIn2DArray() {
+        int boardSize = this.layout.getBoardSize();
+        char[][] board = new char[boardSize][boardSize];
+
+        // Fills up the board with a '-'
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                board[i][j] = Board.NA_POINT;
+            }
+        }
+
+        // Fill the board with value of edges
+        Point p;
+        int owner;
+        for (int e = 0; e < this.layout.getNumEdges(); e++) {
+            p = this.layout.getEdgePoint(e);
+            owner = this.getEdgeOwner(e);
+
+            if (owner == RED) {
+                board[p.getX()][p.getY()] = Board.RED_EDGE;
+            } else if (owner == BLUE) {
+                board[p.getX()][p.getY()] = Board.BLUE_EDGE;
+            } else {
+                board[p.getX()][p.getY()] = Board.EMPTY_EDGE;
+            }
+        }
+
+        // Fill the board with value of captured cells
+        for (int c = 0; c < this.layout.getNumCells(); c++) {
+            p = this.layout.getCellPoint(c);
+            owner = this.getCellOwner(c);
+
+            if (owner == RED) {
+                board[p.getX()][p.getY()] = Board.RED_CELL;
+            } else if (owner == BLUE) {
+                board[p.getX()][p.getY()] = Board.BLUE_CELL;
+            }
+        }
+
+        return board;
+    }
+
+    /* Print the board in rows x cols square format
+     */
+    public void printBoard() {
+        char[][] board = getBoardIn2DArray();
+        int boardSize = this.layout.getBoardSize();
+
+        for (int row = 0; row < boardSize; row++) {
+            for (int col = 0; col < boardSize; col++) {
+
+                // Print whitespace between the values
+                // by printing before each value except the first
+                if (col != 0) {
+                    System.out.print(' ');
+                }
+
+                System.out.print(board[row][col]);
+            }
+            System.out.println();
+        }
+        System.out.println();
+    }
+
+    /* Return a point that captures at least one cell
+     */
+    public Point getCapturableCellPoint() {
+        int edge = this.getCapturingEdge();
+
+        // No cells capturable with one point
+        return (edge == BoardLayout.NO_EDGE) ? null :
+            this.layout.getEdgePoint(edge);
+    }
+
+    /* Return the points of all the uncaptured edges of the board state
+     */
+    public ArrayList<Point> getAllUncapturedEdges() {
+        ArrayList<Point> uncapturedEdges = new ArrayList<Point>(
+            this.possibleMoves);
+
+        for (int w = 0; w < this.capturedEdges.length; w++) {
+            long uncaptured = this.getUncapturedWord(w);
+            while (uncaptured != 0) {
+                int e = (w << 6) + Long.numberOfTrailingZeros(uncaptured);
+                uncaptured &= uncaptured - 1;
+                uncapturedEdges.add(this.layout.getEdgePoint(e));
+            }
+        }
+
+        return uncapturedEdges;
+    }
+
+    /* Return the word w of the bitset of uncaptured edges
+     */
+    public long getUncapturedWord(int w) {
+        long uncaptured = ~this.capturedEdges[w];
+        int remainder = this.layout.getNumEdges() - (w << 6);
+
+        if (remainder < 64) {
+            // Mask off the bits past the last edge
+            uncaptured &= (1L << remainder) - 1;
+        }
+        return uncaptured;
+    }
+
+    /* Return true if the edge is uncaptured and taking it would not lead to
+     * an opponent capturing a cell in the next turn
+     */
+    public boolean isSafeEdge(int edge) {
+        return (this.safeEdges[edge >>> 6] & (1L << edge)) != 0;
+    }
+
+    /* Return the first safe edge in index order, or BoardLayout.NO_EDGE if
+     * there are none
+     */
+    public int getFirstSafeEdge() {
+        for (int w = 0; w < this.safeEdges.length; w++) {
+            if (this.safeEdges[w] != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(this.safeEdges[w]);
+            }
+        }
+
+        return BoardLayout.NO_EDGE;
+    }
+
+    /* Write the safe edges in index order into the given buffer, which must
+     * hold every edge of the board.
+     *
+     * Return the number of safe edges
+     */
+    public int generateSafeEdges(int[] edges) {
+        int numSafe = 0;
+
+        for (int w = 0; w < this.safeEdges.length; w++) {
+            long safe = this.safeEdges[w];
+            while (safe != 0) {
+                edges[numSafe++] = (w << 6) + Long.numberOfTrailingZeros(safe);
+                safe &= safe - 1;
+            }
+        }
+
+        return numSafe;
+    }
+
+    /* Write the uncaptured edges in index order into the given buffer, which
+     * must hold every edge of the board.
+     *
+     * Return the number of uncaptured edges
+     */
+    public int generateUncapturedEdges(int[] edges) {
+        int numUncaptured = 0;
+
+        for (int w = 0; w < this.capturedEdges.length; w++) {
+            long uncaptured = this.getUncapturedWord(w);
+            while (uncaptured != 0) {
+                edges[numUncaptured++] = (w << 6) +
+                    Long.numberOfTrailingZeros(uncaptured);
+                uncaptured &= uncaptured - 1;
+            }
+        }
+
+        return numUncaptured;
+    }
+
+    public int countSafeEdges() {
+        return this.numSafeEdges;
+    }
+
+    /* Return points of edges where it would not lead to an opponent
+     * capturing a cell in the next turn
+     */
+    public ArrayList<Point> getSafeEdges() {
+        ArrayList<Point> safeEdgePoints = new ArrayList<Point>(
+            this.numSafeEdges);
+
+        for (int w = 0; w < this.safeEdges.length; w++) {
+            long safe = this.safeEdges[w];
+            while (safe != 0) {
+                int e = (w << 6) + Long.numberOfTrailingZeros(safe);
+                safe &= safe - 1;
+                safeEdgePoints.add(this.layout.getEdgePoint(e));
+            }
+        }
+
+        return safeEdgePoints;
+    }
+
+}
@@ -32,6 +32,11 @@ public class Board implements Piece {
     private ArrayList<Cell> cells;
     private HashMap<Edge, ArrayList<Cell>> EdgeToCells;
 
+    // Shared geometry of the board dimension, and the edges of this board
+    // by their index in it
+    private BoardLayout layout;
+    private Edge[] edges;
+
     public Board(int boardDimension) {
         int numCells = Board.numberOfCells(boardDimension);
 
@@ -41,6 +46,9 @@ public class Board implements Piece {
         this.cells = new ArrayList<Cell>(numCells);
         this.EdgeToCells = new HashMap<Edge, ArrayList<Cell>>();
 
+        this.layout = BoardLayout.forDimension(boardDimension);
+        this.edges = new Edge[this.layout.getNumEdges()];
+
         this.newState();
         this.possibleMoves = this.countPossibleMoves();
     }
@@ -166,14 +174,16 @@ public class Board implements Piece {
     /* Return the edge in the board given a point
      */
     public Edge getEdge(Point p) {
-        for (Edge e: this.EdgeToCells.keySet()) {
-            if (e.getPoint().equals(p)) {
-                return e;
-            }
+        if (p == null) {
+            return null;
         }
 
-        // No such point
-        return null;
+        int index = this.layout.getEdgeIndex(p.getX(), p.getY());
+        if (index == BoardLayout.NO_EDGE) {
+            // No such point
+            return null;
+        }
+        return this.edges[index];
     }
 
     /* Return true if point is a valid empty edge point on the board
@@ -435,38 +445,30 @@ public class Board implements Piece {
         // the cells
         Cell cell;
         Edge edge;
+        int edgeIndex;
         ArrayList<Cell> edgeCells;
         ArrayList<Point> edgePointsOfCell;
-        // {points of edge: edge}
-        HashMap<Point, Edge> allEdgePoints = new HashMap<Point, Edge>();
         for (int i = 0; i < cellPoints.size(); i++) {
             cell = new Cell(cellPoints.get(i), cellActualPoints.get(i));
             edgePointsOfCell = Cell.getPointOfCellEdges(cellPoints.get(i));
 
             for (Point edgeP: edgePointsOfCell) {
-                edge = null;
-
-                // find if the point has already been retrieved
-                for (Point point: allEdgePoints.keySet()) {
-                    if (point.equals(edgeP)) {
-                        edge = allEdgePoints.get(point);
-                    }
-                }
+                edgeIndex = this.layout.getEdgeIndex(edgeP.getX(),
+                    edgeP.getY());
+                edge = this.edges[edgeIndex];
 
                 if (edge != null) {
                     // edge already exist/created, update the edge with
                     // list of cells its associated with
                     edgeCells = EdgeToCells.get(edge);
-
                     edgeCells.add(cell);
-                    EdgeToCells.put(edge, edgeCells);
                 } else {
                     // create new edge
                     edgeCells = new ArrayList<Cell>(2);
                     edge = new Edge(edgeP);
 
                     edgeCells.add(cell);
-                    allEdgePoints.put(edgeP, edge);
+                    this.edges[edgeIndex] = edge;
                     EdgeToCells.put(edge, edgeCells);
                 }
 
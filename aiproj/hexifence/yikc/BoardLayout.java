@@ -0,0 +1,352 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/* BoardLayout class
+ * Fixed geometry of a board of a given dimension. Every edge and every cell
+ * is given a dense integer index so that board states can be stored as
+ * bitsets and primitive arrays instead of object graphs
+ */
+public class BoardLayout {
+
+    public static final int NO_EDGE = -1;
+    public static final int NO_CELL = -1;
+    public static final int MAX_CELLS_PER_EDGE = 2;
+
+    // Rotations by every sixth of a turn, each with and without a
+    // reflection, map the board onto itself
+    public static final int NUM_SYMMETRIES = 12;
+
+    // Layouts are immutable, so one is shared by every board of a dimension
+    private static final HashMap<Integer, BoardLayout> LAYOUTS =
+        new HashMap<Integer, BoardLayout>();
+
+    private int boardDimension;
+    private int boardSize;
+    private int numCells;
+    private int numEdges;
+
+    // Board point of every edge and every cell, by index
+    private Point[] edgePoints;
+    private Point[] cellPoints;
+
+    // {row, col} of the 2D board -> edge index, or NO_EDGE
+    private int[][] edgeIndexTable;
+
+    // Edge indexes of each cell, in the order of Cell.getPointOfCellEdges
+    private int[][] cellEdges;
+
+    // Cell indexes of each edge (one for edges on the border of the board)
+    // and the side of that cell the edge is on
+    private int[][] edgeCells;
+    private int[][] edgeCellSides;
+
+    // Cell on the other side of each side of a cell, or NO_CELL on the
+    // border of the board
+    private int[][] cellNeighbours;
+
+    // Edge and cell each edge and cell is mapped to by every symmetry, the
+    // first being the identity, and the symmetry undoing each symmetry
+    private int[][] edgeSymmetries;
+    private int[][] cellSymmetries;
+    private int[] inverseSymmetries;
+
+    /* Return the shared layout of a board dimension, building it the first
+     * time the dimension is used
+     */
+    public static synchronized BoardLayout forDimension(int boardDimension) {
+        BoardLayout layout = LAYOUTS.get(boardDimension);
+
+        if (layout == null) {
+            layout = new BoardLayout(boardDimension);
+            LAYOUTS.put(boardDimension, layout);
+        }
+        return layout;
+    }
+
+    private BoardLayout(int boardDimension) {
+        this.boardDimension = boardDimension;
+        this.boardSize = (boardDimension * 4) - 1;
+        this.numCells = Board.numberOfCells(boardDimension);
+
+        this.build();
+    }
+
+    public int getBoardDimension() {
+        return this.boardDimension;
+    }
+
+    public int getBoardSize() {
+        return this.boardSize;
+    }
+
+    public int getNumCells() {
+        return this.numCells;
+    }
+
+    public int getNumEdges() {
+        return this.numEdges;
+    }
+
+    public Point getEdgePoint(int edge) {
+        return this.edgePoints[edge];
+    }
+
+    public Point getCellPoint(int cell) {
+        return this.cellPoints[cell];
+    }
+
+    public int[] getCellEdges(int cell) {
+        return this.cellEdges[cell];
+    }
+
+    public int[] getEdgeCells(int edge) {
+        return this.edgeCells[edge];
+    }
+
+    /* Return the cell across the given side of a cell, or NO_CELL if the
+     * side is on the border of the board
+     */
+    public int getNeighbour(int cell, int side) {
+        return this.cellNeighbours[cell][side];
+    }
+
+    public int[] getEdgeCellSides(int edge) {
+        return this.edgeCellSides[edge];
+    }
+
+    /* Return the edge the given symmetry maps an edge to
+     */
+    public int getSymmetricEdge(int symmetry, int edge) {
+        return this.edgeSymmetries[symmetry][edge];
+    }
+
+    /* Return the cell the given symmetry maps a cell to
+     */
+    public int getSymmetricCell(int symmetry, int cell) {
+        return this.cellSymmetries[symmetry][cell];
+    }
+
+    /* Return the symmetry that maps every edge and cell back to where the
+     * given symmetry took it from
+     */
+    public int getInverseSymmetry(int symmetry) {
+        return this.inverseSymmetries[symmetry];
+    }
+
+    /* Return the index of the edge at a point of the 2D board, or NO_EDGE if
+     * there is no edge at that point
+     */
+    public int getEdgeIndex(int row, int col) {
+        if (row < 0 || col < 0 || row >= this.boardSize ||
+            col >= this.boardSize) {
+            return NO_EDGE;
+        }
+
+        return this.edgeIndexTable[row][col];
+    }
+
+    /* Number of long words needed for a bitset over all edges
+     */
+    public int getEdgeWords() {
+        return (this.numEdges + 63) >>> 6;
+    }
+
+    /* Number of long words needed for a bitset over all cells
+     */
+    public int getCellWords() {
+        return (this.numCells + 63) >>> 6;
+    }
+
+    /* Number the cells and edges of the board, in the same order as
+     * Board.newState discovers them
+     */
+    private void build() {
+        ArrayList<Point> edgePointList = new ArrayList<Point>();
+        ArrayList<ArrayList<Integer>> edgeCellList =
+            new ArrayList<ArrayList<Integer>>();
+        ArrayList<ArrayList<Integer>> edgeSideList =
+            new ArrayList<ArrayList<Integer>>();
+
+        this.cellPoints = new Point[this.numCells];
+        this.cellEdges = new int[this.numCells][Cell.MAX_EDGES];
+        this.edgeIndexTable = new int[this.boardSize][this.boardSize];
+        for (int[] row: this.edgeIndexTable) {
+            Arrays.fill(row, NO_EDGE);
+        }
+
+        int cell = 0;
+        int leftIndent;
+        int rightIndent;
+        for (int i = 1; i < this.boardSize; i += 2) {
+            leftIndent = Math.max(0, i - this.boardSize/2);
+            rightIndent = Math.max(0, this.boardSize/2 - i);
+
+            for (int j = 1 + leftIndent; j < (this.boardSize - rightIndent);
+                j += 2) {
+                Point cellPoint = new Point(i, j);
+                this.cellPoints[cell] = cellPoint;
+
+                int side = 0;
+                for (Point edgeP: Cell.getPointOfCellEdges(cellPoint)) {
+                    int x = edgeP.getX();
+                    int y = edgeP.getY();
+                    int edge = this.edgeIndexTable[x][y];
+
+                    if (edge == NO_EDGE) {
+                        // First time this edge is seen, number it
+                        edge = edgePointList.size();
+                        this.edgeIndexTable[x][y] = edge;
+                        edgePointList.add(edgeP);
+                        edgeCellList.add(new ArrayList<Integer>(
+                            MAX_CELLS_PER_EDGE));
+                        edgeSideList.add(new ArrayList<Integer>(
+                            MAX_CELLS_PER_EDGE));
+                    }
+
+                    edgeCellList.get(edge).add(cell);
+                    edgeSideList.get(edge).add(side);
+                    this.cellEdges[cell][side] = edge;
+                    side++;
+                }
+                cell++;
+            }
+        }
+
+        this.numEdges = edgePointList.size();
+        this.edgePoints = edgePointList.toArray(new Point[this.numEdges]);
+        this.edgeCells = new int[this.numEdges][];
+        this.edgeCellSides = new int[this.numEdges][];
+        for (int e = 0; e < this.numEdges; e++) {
+            ArrayList<Integer> cells = edgeCellList.get(e);
+            ArrayList<Integer> sides = edgeSideList.get(e);
+
+            this.edgeCells[e] = new int[cells.size()];
+            this.edgeCellSides[e] = new int[sides.size()];
+            for (int i = 0; i < cells.size(); i++) {
+                this.edgeCells[e][i] = cells.get(i);
+                this.edgeCellSides[e][i] = sides.get(i);
+            }
+        }
+
+        this.cellNeighbours = new int[this.numCells][Cell.MAX_EDGES];
+        for (int c = 0; c < this.numCells; c++) {
+            for (int side = 0; side < Cell.MAX_EDGES; side++) {
+                this.cellNeighbours[c][side] = NO_CELL;
+                for (int other: this.edgeCells[this.cellEdges[c][side]]) {
+                    if (other != c) {
+                        this.cellNeighbours[c][side] = other;
+                    }
+                }
+            }
+        }
+
+        this.buildSymmetries();
+    }
+
+    /* Map every edge and cell by every symmetry of the board, and find the
+     * inverse of each symmetry. Taken from the centre of the board, a point
+     * (a, b) turns a sixth of a turn to (a - b, a) and reflects to (b, a)
+     */
+    private void buildSymmetries() {
+        int[][] cellIndexTable = new int[this.boardSize][this.boardSize];
+        for (int[] row: cellIndexTable) {
+            Arrays.fill(row, NO_CELL);
+        }
+        for (int c = 0; c < this.numCells; c++) {
+            cellIndexTable[this.cellPoints[c].getX()]
+                [this.cellPoints[c].getY()] = c;
+        }
+
+        this.edgeSymmetries = new int[NUM_SYMMETRIES][this.numEdges];
+        for (int e = 0; e < this.numEdges; e++) {
+            int[] images = this.mapPoint(this.edgePoints[e], null);
+            for (int s = 0; s < NUM_SYMMETRIES; s++) {
+                this.edgeSymmetries[s][e] = images[s];
+            }
+        }
+        this.cellSymmetries = new int[NUM_SYMMETRIES][this.numCells];
+        for (int c = 0; c < this.numCells; c++) {
+            int[] images = this.mapPoint(this.cellPoints[c], cellIndexTable);
+            for (int s = 0; s < NUM_SYMMETRIES; s++) {
+                this.cellSymmetries[s][c] = images[s];
+            }
+        }
+
+        this.inverseSymmetries = new int[NUM_SYMMETRIES];
+        for (int s = 0; s < NUM_SYMMETRIES; s++) {
+            this.inverseSymmetries[s] = -1;
+            for (int t = 0; t < NUM_SYMMETRIES; t++) {
+                if (this.isInverse(s, t)) {
+                    this.inverseSymmetries[s] = t;
+                    break;
+                }
+            }
+            if (this.inverseSymmetries[s] < 0) {
+                throw new IllegalStateException(
+                    "Board symmetry " + s + " has no inverse");
+            }
+        }
+    }
+
+    /* Return the index of the point under every symmetry, in the cell
+     * index table given or the edge index table if it is null
+     */
+    private int[] mapPoint(Point point, int[][] cellIndexTable) {
+        int centre = this.boardSize / 2;
+        int a = point.getX() - centre;
+        int b = point.getY() - centre;
+        int[] images = new int[NUM_SYMMETRIES];
+
+        for (int turn = 0; turn < NUM_SYMMETRIES / 2; turn++) {
+            images[2 * turn] = this.indexAt(centre + a, centre + b,
+                cellIndexTable);
+            images[2 * turn + 1] = this.indexAt(centre + b, centre + a,
+                cellIndexTable);
+
+            int turned = a - b;
+            b = a;
+            a = turned;
+        }
+
+        for (int image: images) {
+            if (image < 0) {
+                throw new IllegalStateException(
+                    "Board symmetry maps (" + point.getX() + ", " +
+                    point.getY() + ") off the board");
+            }
+        }
+        return images;
+    }
+
+    private int indexAt(int row, int col, int[][] cellIndexTable) {
+        if (cellIndexTable == null) {
+            return this.getEdgeIndex(row, col);
+        }
+        if (row < 0 || col < 0 || row >= this.boardSize ||
+            col >= this.boardSize) {
+            return NO_CELL;
+        }
+        return cellIndexTable[row][col];
+    }
+
+    /* Return true if symmetry t takes every edge back to where symmetry s
+     * took it from
+     */
+    private boolean isInverse(int s, int t) {
+        for (int e = 0; e < this.numEdges; e++) {
+            if (this.edgeSymmetries[t][this.edgeSymmetries[s][e]] != e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
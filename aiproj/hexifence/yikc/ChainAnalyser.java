@@ -0,0 +1,472 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import java.util.Arrays;
+
+/* ChainAnalyser class
+ * Splits the uncaptured cells of a board into chains and loops for the
+ * endgame, once no safe edges are left. Cells with exactly two sides left
+ * are joined across those sides into components:
+ *   a loop  : a cycle of such cells
+ *   a chain : a path of them, ending at the border of the board or at a
+ *             cell with some other number of sides left
+ * Cells with three or more sides left are joints, where chains meet.
+ *
+ * Taking any edge of a component lets the opponent capture every cell of
+ * it, so the cells conceded by an edge are the size of its component.
+ *
+ * The board tells the structure about every move, which only notes the
+ * cells of the edge. The next question asked brings the structure up to
+ * date: a move only changes the cells of its edge, so only the components
+ * of those cells and of their neighbours are taken apart and joined up
+ * again. A search makes and takes back many moves between questions, so
+ * once most cells have changed the structure is simply built again
+ */
+public class ChainAnalyser {
+
+    public static final int NO_COMPONENT = -1;
+
+    // Returned when the cells conceded cannot be read off the structure
+    public static final int UNKNOWN = -1;
+
+    private BitBoard board;
+    private BoardLayout layout;
+
+    // Component of every cell with two sides left, or NO_COMPONENT. The
+    // cells of a component are kept as a linked list
+    private int[] componentOf;
+    private int[] firstCell;
+    private int[] nextCell;
+
+    private int[] size;
+    private boolean[] loop;
+
+    // Set for a chain whose cells conceded depend on more than its size:
+    // one that runs into a cell that can be captured, or with both ends at
+    // the same joint of three sides, which its capture would complete too
+    private boolean[] complex;
+
+    // Unused component ids
+    private int[] freeIds;
+    private int numFree;
+
+    // Number of chains and of loops of every length, and of other counts
+    private int[] chainsOfLength;
+    private int[] loopsOfLength;
+    private int numComplex;
+    private int numJoints;
+
+    // Sides left of every cell when the structure last looked at it
+    private int[] sidesSeen;
+
+    // Cells changed by moves since the structure was last brought up to
+    // date, or all of them once rebuildNeeded is set
+    private int[] changedCells;
+    private int numChanged;
+    private int[] changedStamp;
+    private int changeBatch;
+    private boolean rebuildNeeded;
+
+    // Cells whose component has to be found again, marked with the current
+    // stamp so none is added twice
+    private int[] candidates;
+    private int numCandidates;
+    private int[] candidateStamp;
+    private int stamp;
+
+    // Told about every cell whose component is found again, or null
+    private ConcessionIndex concessions;
+
+    public ChainAnalyser(BitBoard board) {
+        int numCells = board.getLayout().getNumCells();
+
+        this.board = board;
+        this.layout = board.getLayout();
+
+        this.componentOf = new int[numCells];
+        this.firstCell = new int[numCells];
+        this.nextCell = new int[numCells];
+        this.size = new int[numCells];
+        this.loop = new boolean[numCells];
+        this.complex = new boolean[numCells];
+        this.freeIds = new int[numCells];
+
+        this.chainsOfLength = new int[numCells + 1];
+        this.loopsOfLength = new int[numCells + 1];
+        this.sidesSeen = new int[numCells];
+
+        this.changedCells = new int[numCells];
+        this.changedStamp = new int[numCells];
+        this.candidates = new int[numCells];
+        this.candidateStamp = new int[numCells];
+
+        this.rebuild();
+    }
+
+    /* Split the board into components from scratch
+     */
+    public void rebuild() {
+        int numCells = this.layout.getNumCells();
+
+        this.startChangeBatch();
+
+        Arrays.fill(this.componentOf, NO_COMPONENT);
+        Arrays.fill(this.chainsOfLength, 0);
+        Arrays.fill(this.loopsOfLength, 0);
+        this.numComplex = 0;
+        this.numJoints = 0;
+
+        this.numFree = 0;
+        for (int k = numCells - 1; k >= 0; k--) {
+            this.freeIds[this.numFree++] = k;
+        }
+
+        for (int c = 0; c < numCells; c++) {
+            this.sidesSeen[c] = 0;
+            this.seeSides(c);
+        }
+        for (int c = 0; c < numCells; c++) {
+            if (this.componentOf[c] == NO_COMPONENT &&
+                this.board.getNumSidesUncaptured(c) == 2) {
+                this.buildComponent(c);
+            }
+        }
+        if (this.concessions != null) {
+            this.concessions.markAll();
+        }
+    }
+
+    /* Return the cells conceded by every edge, kept up to date with the
+     * chains from the first time they are asked for
+     */
+    public ConcessionIndex getConcessions() {
+        if (this.concessions == null) {
+            this.concessions = new ConcessionIndex(this.board, this);
+        }
+        return this.concessions;
+    }
+
+    /* Note that the edge was taken or given back. Called by the board once
+     * the cells of the edge are updated
+     */
+    public void update(int edge) {
+        if (this.rebuildNeeded) {
+            return;
+        }
+
+        for (int c: this.layout.getEdgeCells(edge)) {
+            if (this.changedStamp[c] != this.changeBatch) {
+                this.changedStamp[c] = this.changeBatch;
+                this.changedCells[this.numChanged++] = c;
+            }
+        }
+        if (this.numChanged > this.changedCells.length / 2) {
+            this.rebuildNeeded = true;
+        }
+    }
+
+    /* Bring the structure up to date with the moves noted since it last was
+     */
+    private void refresh() {
+        if (this.rebuildNeeded) {
+            this.rebuild();
+            return;
+        } else if (this.numChanged == 0) {
+            return;
+        }
+
+        this.stamp++;
+        this.numCandidates = 0;
+
+        for (int i = 0; i < this.numChanged; i++) {
+            int c = this.changedCells[i];
+
+            this.seeSides(c);
+            this.dissolve(this.componentOf[c]);
+            this.addCandidate(c);
+
+            // A neighbour's component may end at this cell
+            for (int side = 0; side < Cell.MAX_EDGES; side++) {
+                int neighbour = this.layout.getNeighbour(c, side);
+                if (neighbour != BoardLayout.NO_CELL) {
+                    this.dissolve(this.componentOf[neighbour]);
+                }
+            }
+        }
+
+        for (int i = 0; i < this.numCandidates; i++) {
+            int c = this.candidates[i];
+            if (this.componentOf[c] == NO_COMPONENT &&
+                this.board.getNumSidesUncaptured(c) == 2) {
+                this.buildComponent(c);
+            }
+        }
+        if (this.concessions != null) {
+            for (int i = 0; i < this.numCandidates; i++) {
+                this.concessions.markCell(this.candidates[i]);
+            }
+        }
+        this.startChangeBatch();
+    }
+
+    private void startChangeBatch() {
+        this.changeBatch++;
+        this.numChanged = 0;
+        this.rebuildNeeded = false;
+    }
+
+    /* Return the number of cells the opponent captures in a row if the
+     * edge is taken, or UNKNOWN if the structure cannot tell
+     */
+    public int getCellsConceded(int edge) {
+        this.refresh();
+        if (this.board.isEdgeCaptured(edge)) {
+            return 0;
+        }
+
+        int component = NO_COMPONENT;
+        for (int c: this.layout.getEdgeCells(edge)) {
+            if (this.board.getNumSidesUncaptured(c) == 1) {
+                // Taking the edge captures, which the structure leaves to
+                // the board
+                return UNKNOWN;
+            }
+            if (this.componentOf[c] != NO_COMPONENT) {
+                component = this.componentOf[c];
+            }
+        }
+
+        if (component == NO_COMPONENT) {
+            // Only joints or the border, no cell is left with one side
+            return 0;
+        }
+        return this.complex[component] ? UNKNOWN : this.size[component];
+    }
+
+    /* Return the component of a cell, or NO_COMPONENT if the cell does not
+     * have two sides left
+     */
+    public int getComponentOf(int cell) {
+        this.refresh();
+        return this.componentOf[cell];
+    }
+
+    public int getComponentSize(int component) {
+        return this.size[component];
+    }
+
+    public boolean isLoop(int component) {
+        return this.loop[component];
+    }
+
+    public boolean isComplex(int component) {
+        return this.complex[component];
+    }
+
+    /* Return the number of chains of the given length
+     */
+    public int getNumChains(int length) {
+        this.refresh();
+        return this.chainsOfLength[length];
+    }
+
+    /* Return the number of loops of the given length
+     */
+    public int getNumLoops(int length) {
+        this.refresh();
+        return this.loopsOfLength[length];
+    }
+
+    /* Return the length of the longest chain or loop the board can have
+     */
+    public int getMaxLength() {
+        return this.layout.getNumCells();
+    }
+
+    public int getNumComplex() {
+        this.refresh();
+        return this.numComplex;
+    }
+
+    /* Return the number of uncaptured cells with three or more sides left
+     */
+    public int getNumJoints() {
+        this.refresh();
+        return this.numJoints;
+    }
+
+    /* Return true if every uncaptured cell is in a chain or loop that
+     * is not complex, so the endgame is made up of independent components
+     */
+    public boolean isSimple() {
+        this.refresh();
+        return this.numJoints == 0 && this.numComplex == 0 &&
+            this.board.numCellsAvailableForCapture() == 0;
+    }
+
+    /* Verify the incrementally updated structure against one built from
+     * scratch
+     */
+    public void check() {
+        ChainAnalyser fresh = new ChainAnalyser(this.board);
+
+        this.refresh();
+        if (!Arrays.equals(this.chainsOfLength, fresh.chainsOfLength) ||
+            !Arrays.equals(this.loopsOfLength, fresh.loopsOfLength) ||
+            this.numComplex != fresh.numComplex ||
+            this.numJoints != fresh.numJoints) {
+            throw new IllegalStateException("Chains out of date at ply " +
+                this.board.getPly());
+        }
+        for (int c = 0; c < this.componentOf.length; c++) {
+            int k = this.componentOf[c];
+            int freshK = fresh.componentOf[c];
+
+            if ((k == NO_COMPONENT) != (freshK == NO_COMPONENT) ||
+                (k != NO_COMPONENT && (this.size[k] != fresh.size[freshK] ||
+                this.complex[k] != fresh.complex[freshK]))) {
+                throw new IllegalStateException("Chain of cell " + c +
+                    " out of date at ply " + this.board.getPly());
+            }
+        }
+        if (this.concessions != null) {
+            this.concessions.check();
+        }
+    }
+
+    /* Count the cell as a joint or not by its sides left now
+     */
+    private void seeSides(int cell) {
+        int sides = this.board.getNumSidesUncaptured(cell);
+
+        if (this.sidesSeen[cell] >= 3) {
+            this.numJoints--;
+        }
+        if (sides >= 3) {
+            this.numJoints++;
+        }
+        this.sidesSeen[cell] = sides;
+    }
+
+    private void addCandidate(int cell) {
+        if (this.candidateStamp[cell] != this.stamp) {
+            this.candidateStamp[cell] = this.stamp;
+            this.candidates[this.numCandidates++] = cell;
+        }
+    }
+
+    /* Take a component apart, its cells become candidates to be joined up
+     * again
+     */
+    private void dissolve(int component) {
+        if (component == NO_COMPONENT) {
+            return;
+        }
+
+        if (this.loop[component]) {
+            this.loopsOfLength[this.size[component]]--;
+        } else {
+            this.chainsOfLength[this.size[component]]--;
+        }
+        if (this.complex[component]) {
+            this.numComplex--;
+        }
+
+        for (int c = this.firstCell[component]; c != BoardLayout.NO_CELL;
+            c = this.nextCell[c]) {
+            this.componentOf[c] = NO_COMPONENT;
+            this.addCandidate(c);
+        }
+        this.freeIds[this.numFree++] = component;
+    }
+
+    /* Build the component of a cell with two sides left, following its two
+     * sides as far as they go
+     */
+    private void buildComponent(int start) {
+        int component = this.freeIds[--this.numFree];
+        int sides = this.board.getCellSides(start);
+        int firstSide = Integer.numberOfTrailingZeros(sides);
+        int secondSide = Integer.numberOfTrailingZeros(
+            sides & ~(1 << firstSide));
+
+        this.componentOf[start] = component;
+        this.firstCell[component] = start;
+        this.nextCell[start] = BoardLayout.NO_CELL;
+        this.size[component] = 1;
+        this.loop[component] = false;
+
+        int firstEnd = this.follow(component, start, firstSide);
+        boolean isComplex = false;
+        if (firstEnd == start) {
+            this.loop[component] = true;
+        } else {
+            int secondEnd = this.follow(component, start, secondSide);
+
+            isComplex = this.isCapturable(firstEnd) ||
+                this.isCapturable(secondEnd) ||
+                (firstEnd == secondEnd && firstEnd != BoardLayout.NO_CELL &&
+                this.board.getNumSidesUncaptured(firstEnd) == 3);
+        }
+        this.complex[component] = isComplex;
+
+        if (this.loop[component]) {
+            this.loopsOfLength[this.size[component]]++;
+        } else {
+            this.chainsOfLength[this.size[component]]++;
+        }
+        if (isComplex) {
+            this.numComplex++;
+        }
+    }
+
+    /* Add the cells with two sides left reached from a cell across the
+     * given side to the component.
+     *
+     * Return the cell the component ends at, NO_CELL at the border, or
+     * the start cell if the component closes into a loop
+     */
+    private int follow(int component, int start, int side) {
+        int cell = start;
+
+        while (true) {
+            int edge = this.layout.getCellEdges(cell)[side];
+            int next = this.layout.getNeighbour(cell, side);
+
+            if (next == BoardLayout.NO_CELL || next == start ||
+                this.board.getNumSidesUncaptured(next) != 2) {
+                return next;
+            }
+
+            this.componentOf[next] = component;
+            this.nextCell[next] = this.firstCell[component];
+            this.firstCell[component] = next;
+            this.size[component]++;
+
+            // Leave the next cell by its other side left
+            int inSide = this.sideOf(next, edge);
+            side = Integer.numberOfTrailingZeros(
+                this.board.getCellSides(next) & ~(1 << inSide));
+            cell = next;
+        }
+    }
+
+    /* Return the side of a cell the edge is on
+     */
+    private int sideOf(int cell, int edge) {
+        int[] cells = this.layout.getEdgeCells(edge);
+
+        return (cells[0] == cell) ? this.layout.getEdgeCellSides(edge)[0] :
+            this.layout.getEdgeCellSides(edge)[1];
+    }
+
+    private boolean isCapturable(int cell) {
+        return cell != BoardLayout.NO_CELL &&
+            this.board.getNumSidesUncaptured(cell) == 1;
+    }
+
+}
@@ -0,0 +1,210 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import java.util.Arrays;
+
+/* ConcessionIndex class
+ * Keeps the number of cells every uncaptured edge concedes to the opponent,
+ * with the cheapest edge at the root of a segment tree over the edges.
+ *
+ * An edge concedes the size of the component of its cells, so the chains
+ * tell the index which cells they found again after each move, and only
+ * the edges of those cells are counted again. Edges whose cells conceded
+ * the chains cannot tell, next to a capturable cell or in a complex chain,
+ * are played out by the board again every time the index is asked, as
+ * their count depends on more than their own component. Like the chains,
+ * the index catches up with the moves made only when it is next asked
+ */
+public class ConcessionIndex {
+
+    // Key of a captured edge, larger than that of any uncaptured one
+    private static final int CAPTURED = Integer.MAX_VALUE;
+
+    // Keys order edges by cells conceded, then by index
+    private static final int EDGE_BITS = 16;
+
+    private BitBoard board;
+    private BoardLayout layout;
+    private ChainAnalyser chains;
+
+    // Cells conceded by every edge, when last counted
+    private int[] conceded;
+
+    // Minimum key of every subtree, leaves from index numLeaves on
+    private int[] tree;
+    private int numLeaves;
+
+    // Cells whose edges are to be counted again, and those edges, each
+    // marked with the current stamp so none is added twice
+    private int[] dirtyCells;
+    private int numDirtyCells;
+    private int[] cellStamp;
+    private int[] dirtyEdges;
+    private int numDirty;
+    private int[] dirtyStamp;
+    private int stamp;
+    private boolean allDirty;
+
+    // Edges the board played out, counted again every time
+    private int[] playedOut;
+    private int numPlayedOut;
+
+    public ConcessionIndex(BitBoard board, ChainAnalyser chains) {
+        int numEdges = board.getLayout().getNumEdges();
+
+        this.board = board;
+        this.layout = board.getLayout();
+        this.chains = chains;
+
+        this.conceded = new int[numEdges];
+        this.numLeaves = Integer.highestOneBit(numEdges);
+        if (this.numLeaves < numEdges) {
+            this.numLeaves <<= 1;
+        }
+        this.tree = new int[2 * this.numLeaves];
+        Arrays.fill(this.tree, CAPTURED);
+
+        this.dirtyCells = new int[this.layout.getNumCells()];
+        this.cellStamp = new int[this.layout.getNumCells()];
+        this.dirtyEdges = new int[numEdges];
+        this.dirtyStamp = new int[numEdges];
+        this.stamp = 1;
+        this.playedOut = new int[numEdges];
+
+        this.allDirty = true;
+    }
+
+    /* Return the uncaptured edge that concedes the fewest cells, the first
+     * in index order of those that concede as few, or BoardLayout.NO_EDGE
+     */
+    public int getCheapestEdge() {
+        this.refresh();
+
+        int key = this.tree[1];
+        return (key == CAPTURED) ? BoardLayout.NO_EDGE :
+            key & ((1 << EDGE_BITS) - 1);
+    }
+
+    /* Return the number of cells the opponent captures in a row if the
+     * edge is taken
+     */
+    public int getCellsConceded(int edge) {
+        this.refresh();
+        return this.conceded[edge];
+    }
+
+    /* Note that the chains found the component of the cell again, so its
+     * edges may concede a different number of cells
+     */
+    void markCell(int cell) {
+        if (!this.allDirty && this.cellStamp[cell] != this.stamp) {
+            this.cellStamp[cell] = this.stamp;
+            this.dirtyCells[this.numDirtyCells++] = cell;
+        }
+    }
+
+    /* Note that the chains were built again from scratch
+     */
+    void markAll() {
+        this.allDirty = true;
+    }
+
+    /* Verify every count against the board
+     */
+    public void check() {
+        this.refresh();
+        for (int e = 0; e < this.conceded.length; e++) {
+            if (!this.board.isEdgeCaptured(e) && this.conceded[e] !=
+                this.board.countCellsConceded(e, this.board.getSideToMove())) {
+                throw new IllegalStateException("Edge " + e + " concedes " +
+                    "the wrong number of cells at ply " +
+                    this.board.getPly());
+            }
+        }
+    }
+
+    /* Count again the edges marked since the index was last asked, and
+     * those the board played out
+     */
+    private void refresh() {
+        // The chains mark the cells they find again while catching up
+        this.chains.getNumJoints();
+
+        if (this.allDirty) {
+            this.allDirty = false;
+            this.numDirtyCells = 0;
+            this.stamp++;
+            this.numPlayedOut = 0;
+
+            // Fill in the leaves, then every subtree once
+            for (int e = 0; e < this.conceded.length; e++) {
+                this.tree[this.numLeaves + e] = this.count(e);
+            }
+            for (int node = this.numLeaves - 1; node > 0; node--) {
+                this.tree[node] = Math.min(this.tree[2 * node],
+                    this.tree[2 * node + 1]);
+            }
+            return;
+        }
+
+        this.numDirty = 0;
+        for (int i = 0; i < this.numDirtyCells; i++) {
+            for (int e: this.layout.getCellEdges(this.dirtyCells[i])) {
+                this.markEdge(e);
+            }
+        }
+
+        // Played out edges are counted again below, those still needing the
+        // board put themselves back on the list
+        int numOld = this.numPlayedOut;
+        this.numPlayedOut = 0;
+        for (int i = 0; i < numOld; i++) {
+            this.markEdge(this.playedOut[i]);
+        }
+
+        for (int i = 0; i < this.numDirty; i++) {
+            int e = this.dirtyEdges[i];
+            int node = this.numLeaves + e;
+
+            this.tree[node] = this.count(e);
+            for (node >>= 1; node > 0; node >>= 1) {
+                this.tree[node] = Math.min(this.tree[2 * node],
+                    this.tree[2 * node + 1]);
+            }
+        }
+        this.numDirtyCells = 0;
+        this.stamp++;
+    }
+
+    private void markEdge(int edge) {
+        if (this.dirtyStamp[edge] != this.stamp) {
+            this.dirtyStamp[edge] = this.stamp;
+            this.dirtyEdges[this.numDirty++] = edge;
+        }
+    }
+
+    /* Count the cells conceded by an edge.
+     *
+     * Return the key of the edge in the tree
+     */
+    private int count(int edge) {
+        if (this.board.isEdgeCaptured(edge)) {
+            this.conceded[edge] = 0;
+            return CAPTURED;
+        }
+
+        int numCells = this.chains.getCellsConceded(edge);
+        if (numCells == ChainAnalyser.UNKNOWN) {
+            numCells = this.board.countCellsConceded(edge,
+                this.board.getSideToMove());
+            this.playedOut[this.numPlayedOut++] = edge;
+        }
+        this.conceded[edge] = numCells;
+        return (numCells << EDGE_BITS) | edge;
+    }
+
+}
@@ -49,4 +49,9 @@ public class Edge {
         }
     }
 
+    @Override
+    public int hashCode() {
+        return this.point.hashCode();
+    }
+
 }
@@ -0,0 +1,181 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+/* EndgameCache class
+ * Bounded cache of the values found by EndgameSolver, keyed by the packed
+ * multiset of chain and loop lengths. One cache is shared by every search,
+ * across moves and across the games played in the same JVM, since the
+ * value of a multiset never changes.
+ *
+ * The entries are split into sets of a few ways each, and a key can only
+ * be kept in the ways of its set. Each set replaces its entries by CLOCK:
+ * a hit marks the entry, and the set's hand passes over marked entries,
+ * clearing the mark, until it finds an unmarked one to evict. Counters of
+ * hits, misses and evictions tell how well the size suits the games
+ */
+public class EndgameCache {
+
+    // Returned by get when the key is not in the cache
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    private static final int WAYS = 4;
+
+    // Marks an unused entry, the empty multiset is never cached
+    private static final long EMPTY = 0L;
+
+    private static EndgameCache shared;
+
+    private int setMask;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] referenced;
+
+    // Next way of every set the CLOCK hand looks at
+    private int[] hands;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /* Create a cache of at least the given number of entries, rounded up so
+     * there is a power of two of sets
+     */
+    public EndgameCache(int entries) {
+        if (entries <= 0) {
+            throw new IllegalArgumentException(
+                "Endgame cache needs at least one entry, not " + entries);
+        }
+
+        int numSets = Integer.highestOneBit(
+            Math.max(1, (entries + WAYS - 1) / WAYS));
+        if (numSets * WAYS < entries) {
+            numSets <<= 1;
+        }
+
+        this.setMask = numSets - 1;
+        this.keys = new long[numSets * WAYS];
+        this.values = new int[numSets * WAYS];
+        this.referenced = new boolean[numSets * WAYS];
+        this.hands = new int[numSets];
+    }
+
+    /* Return the cache shared by every search in the JVM, sized by the
+     * yikc.endgameCacheEntries property when first used
+     */
+    public static synchronized EndgameCache getShared() {
+        if (shared == null) {
+            shared = new EndgameCache(SearchConfig.fromSystemProperties()
+                .getEndgameCacheEntries());
+        }
+        return shared;
+    }
+
+    /* Return the value kept for the key, or NOT_FOUND
+     */
+    public synchronized int get(long key) {
+        int first = this.setOf(key) * WAYS;
+
+        for (int i = first; i < first + WAYS; i++) {
+            if (this.keys[i] == key) {
+                this.referenced[i] = true;
+                this.hits++;
+                return this.values[i];
+            }
+        }
+
+        this.misses++;
+        return NOT_FOUND;
+    }
+
+    /* Keep the value of the key, evicting an entry of its set if the set
+     * is full
+     */
+    public synchronized void put(long key, int value) {
+        int set = this.setOf(key);
+        int first = set * WAYS;
+
+        for (int i = first; i < first + WAYS; i++) {
+            if (this.keys[i] == key || this.keys[i] == EMPTY) {
+                this.keys[i] = key;
+                this.values[i] = value;
+                return;
+            }
+        }
+
+        // Set is full, give every marked entry a second chance
+        int hand = this.hands[set];
+        while (this.referenced[first + hand]) {
+            this.referenced[first + hand] = false;
+            hand = (hand + 1) % WAYS;
+        }
+
+        this.keys[first + hand] = key;
+        this.values[first + hand] = value;
+        this.hands[set] = (hand + 1) % WAYS;
+        this.evictions++;
+    }
+
+    /* Remove every entry and reset the counters
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < this.keys.length; i++) {
+            this.keys[i] = EMPTY;
+            this.referenced[i] = false;
+        }
+        this.hits = 0;
+        this.misses = 0;
+        this.evictions = 0;
+    }
+
+    public int getCapacity() {
+        return this.keys.length;
+    }
+
+    /* Return the number of entries in use
+     */
+    public synchronized int getSize() {
+        int size = 0;
+
+        for (long key: this.keys) {
+            if (key != EMPTY) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = this.hits + this.misses;
+
+        return String.format("%d/%d entries, %d hits, %d misses " +
+            "(%.1f%% hit rate), %d evictions", this.getSize(),
+            this.getCapacity(), this.hits, this.misses,
+            (lookups == 0) ? 0.0 : 100.0 * this.hits / lookups,
+            this.evictions);
+    }
+
+    private int setOf(long key) {
+        // Packed multisets differ in few bits, so mix them all in
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & this.setMask;
+    }
+
+}
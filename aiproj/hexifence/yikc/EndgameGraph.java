@@ -0,0 +1,209 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import java.util.Arrays;
+
+/* EndgameGraph class
+ * A region of the endgame that has joints, once no safe edges are left, as
+ * a graph: its joints are the nodes, along with the border of the board as
+ * node GROUND, and every chain of cells with two sides left that runs
+ * between two of them is an arc, as long as its number of cells. A chain
+ * may run from a joint back to the same joint.
+ *
+ * Only the graph matters to the value of the region, not where its cells
+ * are on the board, so regions are keyed by the graph with its joints
+ * numbered in whichever order gives the smallest sorted list of arcs. Every
+ * order is tried, which is why a graph has at most MAX_JOINTS joints
+ */
+public class EndgameGraph {
+
+    public static final int GROUND = 0;
+
+    public static final int MAX_JOINTS = 3;
+    public static final int MAX_ARCS = MAX_JOINTS * Cell.MAX_EDGES;
+
+    // Every order of the joints 1..n, for n up to MAX_JOINTS
+    private static final int[][][] ORDERS = buildOrders();
+
+    private int numJoints;
+    private int numArcs;
+
+    // Ends of every arc, from no higher than to, and its number of cells
+    private int[] arcFrom;
+    private int[] arcTo;
+    private int[] arcLength;
+
+    // Sorted arcs under the order being tried and under the best so far
+    private int[] codes;
+    private int[] bestCodes;
+
+    public EndgameGraph() {
+        this.arcFrom = new int[MAX_ARCS];
+        this.arcTo = new int[MAX_ARCS];
+        this.arcLength = new int[MAX_ARCS];
+        this.codes = new int[MAX_ARCS];
+        this.bestCodes = new int[MAX_ARCS];
+    }
+
+    /* Empty the graph, leaving the given number of joints without arcs
+     */
+    public void clear(int numJoints) {
+        this.numJoints = numJoints;
+        this.numArcs = 0;
+    }
+
+    public void addArc(int from, int to, int length) {
+        this.arcFrom[this.numArcs] = Math.min(from, to);
+        this.arcTo[this.numArcs] = Math.max(from, to);
+        this.arcLength[this.numArcs] = length;
+        this.numArcs++;
+    }
+
+    public void removeLastArc() {
+        this.numArcs--;
+    }
+
+    public int getNumJoints() {
+        return this.numJoints;
+    }
+
+    public int getNumArcs() {
+        return this.numArcs;
+    }
+
+    public int getArcFrom(int arc) {
+        return this.arcFrom[arc];
+    }
+
+    public int getArcTo(int arc) {
+        return this.arcTo[arc];
+    }
+
+    public int getArcLength(int arc) {
+        return this.arcLength[arc];
+    }
+
+    /* Return the number of cells of the region, its joints included
+     */
+    public int getNumCells() {
+        int numCells = this.numJoints;
+
+        for (int a = 0; a < this.numArcs; a++) {
+            numCells += this.arcLength[a];
+        }
+        return numCells;
+    }
+
+    /* Return the number of sides left of a joint, an arc from the joint
+     * back to itself counting twice
+     */
+    public int getDegree(int joint) {
+        int degree = 0;
+
+        for (int a = 0; a < this.numArcs; a++) {
+            if (this.arcFrom[a] == joint) {
+                degree++;
+            }
+            if (this.arcTo[a] == joint) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+
+    /* Return the key of the graph, the same for every numbering of its
+     * joints
+     */
+    public long getKey() {
+        this.findBestCodes();
+
+        long key = this.numJoints;
+        for (int a = 0; a < this.numArcs; a++) {
+            key = (key ^ this.bestCodes[a]) * 0x9e3779b97f4a7c15L;
+            key ^= key >>> 29;
+        }
+        return key ^ (key >>> 32);
+    }
+
+    /* Return true if the joints are numbered in the order the key uses, so
+     * every graph is only counted once when graphs are listed by arcs
+     */
+    public boolean isCanonical() {
+        this.findBestCodes();
+        this.sortCodes(ORDERS[this.numJoints][0], this.codes);
+        return Arrays.equals(this.codes, this.bestCodes);
+    }
+
+    /* Sort the arcs under every order of the joints and keep the smallest
+     * list in bestCodes
+     */
+    private void findBestCodes() {
+        int[][] orders = ORDERS[this.numJoints];
+
+        this.sortCodes(orders[0], this.bestCodes);
+        for (int i = 1; i < orders.length; i++) {
+            this.sortCodes(orders[i], this.codes);
+            if (compare(this.codes, this.bestCodes, this.numArcs) < 0) {
+                System.arraycopy(this.codes, 0, this.bestCodes, 0,
+                    this.numArcs);
+            }
+        }
+    }
+
+    /* Write the arcs with their joints renumbered by the order into codes,
+     * in increasing order, and clear the rest of codes
+     */
+    private void sortCodes(int[] order, int[] codes) {
+        for (int a = 0; a < this.numArcs; a++) {
+            int from = order[this.arcFrom[a]];
+            int to = order[this.arcTo[a]];
+
+            codes[a] = (Math.min(from, to) << 14) |
+                (Math.max(from, to) << 12) | this.arcLength[a];
+        }
+        Arrays.fill(codes, this.numArcs, codes.length, 0);
+        Arrays.sort(codes, 0, this.numArcs);
+    }
+
+    private static int compare(int[] codes, int[] otherCodes, int length) {
+        for (int i = 0; i < length; i++) {
+            if (codes[i] != otherCodes[i]) {
+                return (codes[i] < otherCodes[i]) ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /* Return every order of the joints 1..n for every n, GROUND staying
+     * where it is, the first order of each being the identity
+     */
+    private static int[][][] buildOrders() {
+        int[][][] orders = new int[MAX_JOINTS + 1][][];
+
+        orders[0] = new int[][] {{GROUND}};
+        for (int n = 1; n <= MAX_JOINTS; n++) {
+            int[][] shorter = orders[n - 1];
+            orders[n] = new int[shorter.length * n][];
+
+            // Put joint n at every place of every order of the others
+            int i = 0;
+            for (int place = n; place >= 1; place--) {
+                for (int[] order: shorter) {
+                    int[] longer = new int[n + 1];
+                    for (int joint = 0; joint < n; joint++) {
+                        longer[joint] = (order[joint] >= place) ?
+                            order[joint] + 1 : order[joint];
+                    }
+                    longer[n] = place;
+                    orders[n][i++] = longer;
+                }
+            }
+        }
+        return orders;
+    }
+
+}
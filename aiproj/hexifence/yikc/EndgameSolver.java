@@ -0,0 +1,503 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import java.util.Arrays;
+
+/* EndgameSolver class
+ * Solves exactly the endgame of a board with no safe edges left whose cells
+ * all lie in independent chains and loops, as told by ChainAnalyser.
+ *
+ * The player to move has to open a component, and the opponent then either
+ * captures all of it and opens the next one, or keeps control: captures all
+ * but the last two cells of a chain (all but the last four of a loop) and
+ * hands those over, taking a pair of cells with one edge, so the player has
+ * to open the next component as well. Chains of one or two cells can be
+ * opened so they cannot be handed back, and a loop needs four cells left to
+ * hand over two pairs. For V the best score of the player to move over the
+ * rest of the components, opening a component of length n is worth
+ *   chain : min(-n - V, 4 - n + V), or -n - V below three cells
+ *   loop  : min(-n - V, 8 - n + V), or -n - V below four cells
+ * and the player opens whichever is worth the most.
+ *
+ * The value only depends on how many chains and loops there are of every
+ * length, so the values are remembered by that multiset in an EndgameCache.
+ *
+ * Given an EndgameTablebase, boards with joints are solved too, as long as
+ * every region of joints is in it. Opening an arc of a region is worth the
+ * same as opening a chain of the cells it concedes, and leaves the chains,
+ * loops and regions the tablebase tells, opened like the others in turn.
+ * That is only exact for chains and loops: at a joint the player in
+ * control may do better than taking all or all but the last two cells,
+ * and the player opening an arc better than opening it anywhere
+ */
+public class EndgameSolver {
+
+    // Returned when the board is not made of independent components only
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    // Shortest chain that can be handed back, and shortest loop
+    private static final int MIN_DOUBLE_DEAL_CHAIN = 3;
+    private static final int MIN_DOUBLE_DEAL_LOOP = 4;
+
+    // Returned by multisetKey when the multiset does not fit in a long
+    private static final long NO_KEY = -1L;
+
+    private int maxLength;
+
+    // Number of chains and loops of every length left while solving
+    private int[] chains;
+    private int[] loops;
+
+    private EndgameCache cache;
+
+    // Openings of the regions with joints, or null to only solve boards of
+    // chains and loops
+    private EndgameTablebase tablebase;
+
+    // Tablebase entry of every region with joints of the board or left by
+    // an opening, and whether each is left while solving, with the number
+    // of those left and the sum of their mixed keys
+    private int[] regionEntries;
+    private boolean[] regionLeft;
+    private int numRegions;
+    private int numRegionsLeft;
+    private long regionSum;
+
+    // Joint number of every cell of the board, 0 for the others, and the
+    // region of every joint and its number in the region while the regions
+    // are found
+    private int[] jointOf;
+    private int[] parent;
+    private int[] regionJoint;
+    private EndgameGraph graph;
+
+    // Arcs of the board between joints and the border, and whether every
+    // component of ChainAnalyser is one of them
+    private int[] arcFrom;
+    private int[] arcTo;
+    private int[] arcLength;
+    private boolean[] inRegion;
+    private boolean[] counted;
+
+    // Cells, component and last edge of the arc last walked
+    private int walkLength;
+    private int walkComponent;
+    private int walkLastEdge;
+
+    public EndgameSolver(int maxLength, EndgameCache cache,
+        EndgameTablebase tablebase) {
+        this.maxLength = maxLength;
+        this.chains = new int[maxLength + 1];
+        this.loops = new int[maxLength + 1];
+        this.cache = cache;
+        this.tablebase = tablebase;
+
+        // maxLength is the number of cells of the board, and every move
+        // of the solve leaves at most MAX_JOINTS regions
+        this.regionEntries = new int[(EndgameGraph.MAX_JOINTS + 1) *
+            maxLength];
+        this.regionLeft = new boolean[this.regionEntries.length];
+        this.jointOf = new int[maxLength];
+        this.parent = new int[maxLength + 1];
+        this.regionJoint = new int[maxLength + 1];
+        this.graph = new EndgameGraph();
+        this.arcFrom = new int[maxLength * Cell.MAX_EDGES];
+        this.arcTo = new int[maxLength * Cell.MAX_EDGES];
+        this.arcLength = new int[maxLength * Cell.MAX_EDGES];
+        this.inRegion = new boolean[maxLength];
+        this.counted = new boolean[maxLength];
+    }
+
+    /* Return the number of cells the player to move captures over the rest
+     * of the game less those the opponent captures, with both playing their
+     * best, or UNKNOWN if safe edges are left or the components are not
+     * independent and not all in the tablebase
+     */
+    public int solve(BitBoard board) {
+        ChainAnalyser analyser = board.getChains();
+
+        if (board.countSafeEdges() > 0) {
+            return UNKNOWN;
+        }
+
+        if (analyser.isSimple()) {
+            for (int length = 1; length <= this.maxLength; length++) {
+                this.chains[length] = analyser.getNumChains(length);
+                this.loops[length] = analyser.getNumLoops(length);
+            }
+            this.numRegions = 0;
+        } else if (this.tablebase == null ||
+            board.numCellsAvailableForCapture() > 0 ||
+            !this.findRegions(board, analyser)) {
+            return UNKNOWN;
+        }
+
+        this.numRegionsLeft = this.numRegions;
+        this.regionSum = 0;
+        for (int i = 0; i < this.numRegions; i++) {
+            this.regionLeft[i] = true;
+            this.regionSum += this.mixEntry(this.regionEntries[i]);
+        }
+        return this.solve();
+    }
+
+    public EndgameCache getCache() {
+        return this.cache;
+    }
+
+    /* Return the value of the chains and loops left in the counts, for the
+     * player to move
+     */
+    private int solve() {
+        long key = multisetKey(this.chains, this.loops);
+        if (key == 0 && this.numRegionsLeft == 0) {
+            // Nothing left to open
+            return 0;
+        }
+        if (key != NO_KEY && this.numRegionsLeft > 0) {
+            key += this.regionSum;
+            if (key == 0) {
+                key = NO_KEY;
+            }
+        }
+        if (key != NO_KEY) {
+            int known = this.cache.get(key);
+            if (known != EndgameCache.NOT_FOUND) {
+                return known;
+            }
+        }
+
+        int best = Integer.MIN_VALUE;
+        for (int length = 1; length <= this.maxLength; length++) {
+            if (this.chains[length] > 0) {
+                this.chains[length]--;
+                int rest = this.solve();
+                this.chains[length]++;
+
+                best = Math.max(best, openChain(length, rest));
+            }
+            if (this.loops[length] > 0) {
+                this.loops[length]--;
+                int rest = this.solve();
+                this.loops[length]++;
+
+                best = Math.max(best, openLoop(length, rest));
+            }
+        }
+        for (int i = 0; i < this.numRegions; i++) {
+            if (this.regionLeft[i] && !this.isOpenedBefore(i)) {
+                best = Math.max(best, this.openRegion(i));
+            }
+        }
+
+        if (key != NO_KEY) {
+            this.cache.put(key, best);
+        }
+        return best;
+    }
+
+    /* Return the value of opening the best arc of a region left, for the
+     * player to move
+     */
+    private int openRegion(int region) {
+        int entry = this.regionEntries[region];
+        int end = this.tablebase.getOpeningsEnd(entry);
+        int best = Integer.MIN_VALUE;
+
+        this.regionLeft[region] = false;
+        this.numRegionsLeft--;
+        this.regionSum -= this.mixEntry(entry);
+
+        for (int opening = this.tablebase.getFirstOpening(entry);
+            opening < end; opening = this.tablebase.getNextOpening(opening)) {
+            int numRegionsBefore = this.numRegions;
+
+            this.leave(opening, 1);
+            int rest = this.solve();
+            this.leave(opening, -1);
+            this.numRegions = numRegionsBefore;
+
+            best = Math.max(best,
+                openChain(this.tablebase.getCaptured(opening), rest));
+        }
+
+        this.regionSum += this.mixEntry(entry);
+        this.numRegionsLeft++;
+        this.regionLeft[region] = true;
+        return best;
+    }
+
+    /* Add what an opening leaves to what is left to solve, or with a
+     * count of -1 take it away again, the regions left once the caller
+     * pops them
+     */
+    private void leave(int opening, int count) {
+        EndgameTablebase tablebase = this.tablebase;
+
+        for (int i = tablebase.getNumChainsLeft(opening) - 1; i >= 0; i--) {
+            this.chains[tablebase.getChainLeft(opening, i)] += count;
+        }
+        for (int i = tablebase.getNumLoopsLeft(opening) - 1; i >= 0; i--) {
+            this.loops[tablebase.getLoopLeft(opening, i)] += count;
+        }
+        for (int i = tablebase.getNumRegionsLeft(opening) - 1; i >= 0;
+            i--) {
+            int entry = tablebase.getRegionLeft(opening, i);
+
+            if (count > 0) {
+                this.regionEntries[this.numRegions] = entry;
+                this.regionLeft[this.numRegions] = true;
+                this.numRegions++;
+            }
+            this.numRegionsLeft += count;
+            this.regionSum += count * this.mixEntry(entry);
+        }
+    }
+
+    /* Return true if a region left before the given one is alike, so
+     * opening it was already tried
+     */
+    private boolean isOpenedBefore(int region) {
+        for (int i = 0; i < region; i++) {
+            if (this.regionLeft[i] &&
+                this.regionEntries[i] == this.regionEntries[region]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* Split the board into regions of joints, chains and loops, and count
+     * the chains and loops.
+     *
+     * Return false if a region has more joints than the tablebase keeps or
+     * is not in it
+     */
+    private boolean findRegions(BitBoard board, ChainAnalyser analyser) {
+        BoardLayout layout = board.getLayout();
+        int numCells = layout.getNumCells();
+        int numJoints = 0;
+
+        for (int c = 0; c < numCells; c++) {
+            this.jointOf[c] = (board.getNumSidesUncaptured(c) >= 3) ?
+                ++numJoints : EndgameGraph.GROUND;
+        }
+        Arrays.fill(this.inRegion, false);
+
+        // Walk every side of every joint to the joint or border at the
+        // other end, keeping each arc once
+        int numArcs = 0;
+        for (int c = 0; c < numCells; c++) {
+            int joint = this.jointOf[c];
+            if (joint == EndgameGraph.GROUND) {
+                continue;
+            }
+
+            int sides = board.getCellSides(c);
+            while (sides != 0) {
+                int side = Integer.numberOfTrailingZeros(sides);
+                int firstEdge = layout.getCellEdges(c)[side];
+                int end = this.walkArc(board, c, side);
+                int endJoint = (end == BoardLayout.NO_CELL) ?
+                    EndgameGraph.GROUND : this.jointOf[end];
+                sides &= sides - 1;
+
+                if (this.walkLength == 0) {
+                    // Joints sharing an edge are not an endgame region
+                    return false;
+                }
+                this.inRegion[this.walkComponent] = true;
+
+                if (endJoint == EndgameGraph.GROUND || joint < endJoint ||
+                    (joint == endJoint && firstEdge < this.walkLastEdge)) {
+                    this.arcFrom[numArcs] = joint;
+                    this.arcTo[numArcs] = endJoint;
+                    this.arcLength[numArcs] = this.walkLength;
+                    numArcs++;
+                }
+            }
+        }
+
+        // Joints joined by arcs are in the same region
+        for (int joint = 1; joint <= numJoints; joint++) {
+            this.parent[joint] = joint;
+        }
+        for (int a = 0; a < numArcs; a++) {
+            if (this.arcTo[a] != EndgameGraph.GROUND) {
+                this.parent[root(this.parent, this.arcFrom[a])] =
+                    root(this.parent, this.arcTo[a]);
+            }
+        }
+
+        this.numRegions = 0;
+        for (int joint = 1; joint <= numJoints; joint++) {
+            if (root(this.parent, joint) != joint) {
+                continue;
+            }
+
+            // Number the region's joints from 1
+            int regionJoints = 0;
+            for (int other = 1; other <= numJoints; other++) {
+                if (root(this.parent, other) == joint) {
+                    this.regionJoint[other] = ++regionJoints;
+                }
+            }
+            if (regionJoints > EndgameGraph.MAX_JOINTS) {
+                return false;
+            }
+
+            this.graph.clear(regionJoints);
+            for (int a = 0; a < numArcs; a++) {
+                if (root(this.parent, this.arcFrom[a]) == joint) {
+                    int to = this.arcTo[a];
+                    this.graph.addArc(this.regionJoint[this.arcFrom[a]],
+                        (to == EndgameGraph.GROUND) ? to :
+                        this.regionJoint[to], this.arcLength[a]);
+                }
+            }
+
+            int entry = this.tablebase.find(this.graph.getKey());
+            if (entry == EndgameTablebase.NOT_FOUND) {
+                return false;
+            }
+            this.regionEntries[this.numRegions++] = entry;
+        }
+
+        // Count the chains and loops that are not arcs of a region
+        Arrays.fill(this.chains, 0);
+        Arrays.fill(this.loops, 0);
+        Arrays.fill(this.counted, false);
+        for (int c = 0; c < numCells; c++) {
+            int component = analyser.getComponentOf(c);
+            if (component == ChainAnalyser.NO_COMPONENT ||
+                this.counted[component]) {
+                continue;
+            }
+
+            this.counted[component] = true;
+            if (!this.inRegion[component]) {
+                int length = analyser.getComponentSize(component);
+                if (analyser.isLoop(component)) {
+                    this.loops[length]++;
+                } else {
+                    this.chains[length]++;
+                }
+            }
+        }
+        return true;
+    }
+
+    /* Follow the cells with two sides left from a joint across the given
+     * side, noting their number, their component and the last edge.
+     *
+     * Return the cell the arc ends at, or NO_CELL at the border
+     */
+    private int walkArc(BitBoard board, int joint, int side) {
+        BoardLayout layout = board.getLayout();
+        int cell = joint;
+
+        this.walkLength = 0;
+        while (true) {
+            int edge = layout.getCellEdges(cell)[side];
+            int next = layout.getNeighbour(cell, side);
+
+            this.walkLastEdge = edge;
+            if (next == BoardLayout.NO_CELL ||
+                board.getNumSidesUncaptured(next) != 2) {
+                return next;
+            }
+
+            if (this.walkLength == 0) {
+                this.walkComponent = board.getChains().getComponentOf(next);
+            }
+            this.walkLength++;
+
+            // Leave the next cell by its other side left
+            int[] edgeCells = layout.getEdgeCells(edge);
+            int inSide = (edgeCells[0] == next) ?
+                layout.getEdgeCellSides(edge)[0] :
+                layout.getEdgeCellSides(edge)[1];
+            side = Integer.numberOfTrailingZeros(
+                board.getCellSides(next) & ~(1 << inSide));
+            cell = next;
+        }
+    }
+
+    private static int root(int[] parent, int joint) {
+        while (parent[joint] != joint) {
+            joint = parent[joint];
+        }
+        return joint;
+    }
+
+    /* Return the key of a region's entry with its bits spread, so sums of
+     * the keys of the regions left tell the sets of regions apart
+     */
+    private long mixEntry(int entry) {
+        long key = this.tablebase.getKey(entry);
+
+        key = (key ^ (key >>> 31)) * 0xbf58476d1ce4e5b9L;
+        return key ^ (key >>> 29);
+    }
+
+    /* Return the value of opening a chain of the given length, for rest
+     * the value of the other components to the player to move
+     */
+    static int openChain(int length, int rest) {
+        int value = -length - rest;
+
+        if (length >= MIN_DOUBLE_DEAL_CHAIN) {
+            value = Math.min(value, 4 - length + rest);
+        }
+        return value;
+    }
+
+    /* Return the value of opening a loop of the given length, for rest
+     * the value of the other components to the player to move
+     */
+    static int openLoop(int length, int rest) {
+        int value = -length - rest;
+
+        if (length >= MIN_DOUBLE_DEAL_LOOP) {
+            value = Math.min(value, 8 - length + rest);
+        }
+        return value;
+    }
+
+    /* Pack the numbers of chains and loops of every length into a long:
+     * every component in order of length, as a bit telling a loop from a
+     * chain followed by its length in ones and a closing zero. Different
+     * multisets never pack the same, and the empty one packs to 0.
+     *
+     * Return the packed multiset, or NO_KEY when it takes more than 63 bits
+     */
+    private static long multisetKey(int[] chains, int[] loops) {
+        long key = 0;
+        int bits = 0;
+
+        for (int length = 1; length < chains.length; length++) {
+            for (int kind = 0; kind < 2; kind++) {
+                int count = (kind == 0) ? chains[length] : loops[length];
+
+                for (int i = 0; i < count; i++) {
+                    bits += length + 2;
+                    if (bits > 63) {
+                        return NO_KEY;
+                    }
+                    // Kind bit, then the ones of the length, then a zero
+                    key = (key << 1) | kind;
+                    key = (key << length) | ((1L << length) - 1);
+                    key <<= 1;
+                }
+            }
+        }
+
+        // A leading marker keeps chains of one cell from packing to 0
+        return (bits == 0) ? 0 : key | (1L << bits);
+    }
+
+}
@@ -0,0 +1,654 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/*
+ *  EndgameTablebase class
+ *  Every region of the endgame with joints, up to a number of cells and
+ *  EndgameGraph.MAX_JOINTS joints, worked out offline and kept in a file:
+ *
+ *    java aiproj.hexifence.yikc.EndgameTablebase [max cells] [file]
+ *
+ *  Regions are keyed by their EndgameGraph, so one table covers the regions
+ *  of any board. Taking an arc of a region opens a chain: the opponent
+ *  captures its cells, and those of a joint left with one side and the
+ *  chain beyond it. A joint left with two sides joins its two chains into
+ *  one, so what is left of the region falls apart into chains, loops and
+ *  smaller regions. For every region the table keeps what each of its
+ *  different arcs opens: the cells captured, and the lengths of the chains
+ *  and loops and the entries of the regions left. EndgameSolver plays the
+ *  endgame out from those without walking the board or the graphs again,
+ *  every region being in the table along with what it falls apart into.
+ *
+ *  The file holds a header, the keys in increasing order, where the
+ *  openings of every key start, and then the openings: for each, the cells
+ *  captured and the numbers of chains, loops and regions left as bytes,
+ *  the lengths of the chains and loops as bytes and the regions' entries as
+ *  ints. Players open it with -Dyikc.tablebase=file; it is mapped into
+ *  memory read-only rather than read into the heap, so the JVMs of a
+ *  tournament all share the same pages. Lookups only use absolute reads of
+ *  the mapped buffer and so can be made by any thread
+ */
+public class EndgameTablebase {
+
+    // Returned by find when the region is not in the table
+    public static final int NOT_FOUND = -1;
+
+    private static final int MAGIC = 0x48584547;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 24;
+
+    // Bytes of an opening before the lengths of what it leaves
+    private static final int OPENING_HEADER_BYTES = 4;
+
+    // Cells of a dimension-3 board
+    private static final int DEFAULT_MAX_CELLS = 19;
+
+    private static EndgameTablebase shared;
+    private static boolean sharedOpened;
+
+    private ByteBuffer buffer;
+    private int maxCells;
+    private int numEntries;
+    private int startsOffset;
+    private int openingsOffset;
+
+    private EndgameTablebase(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION ||
+            buffer.getInt(12) != EndgameGraph.MAX_JOINTS) {
+            throw new IllegalArgumentException("Not an endgame tablebase");
+        }
+
+        this.buffer = buffer;
+        this.maxCells = buffer.getInt(8);
+        this.numEntries = buffer.getInt(16);
+        this.startsOffset = HEADER_BYTES + 8 * this.numEntries;
+        this.openingsOffset = this.startsOffset + 4 * (this.numEntries + 1);
+        if (buffer.capacity() != this.openingsOffset + buffer.getInt(20)) {
+            throw new IllegalArgumentException("Endgame tablebase is cut " +
+                "short");
+        }
+    }
+
+    /* Map the tablebase in a file into memory
+     */
+    public static EndgameTablebase open(String path) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path),
+            StandardOpenOption.READ);
+
+        try {
+            // The mapping stays valid once the channel is closed
+            MappedByteBuffer buffer = channel.map(
+                FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new EndgameTablebase(buffer);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /* Return the tablebase named by the yikc.tablebase property, opened
+     * once for every search in the JVM, or null if none is set
+     */
+    public static synchronized EndgameTablebase getShared() {
+        if (!sharedOpened) {
+            String path = SearchConfig.fromSystemProperties()
+                .getTablebasePath();
+
+            sharedOpened = true;
+            if (path != null) {
+                try {
+                    shared = open(path);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException(
+                        "Cannot open endgame tablebase " + path, e);
+                }
+            }
+        }
+        return shared;
+    }
+
+    /* Return the entry of the region with the given key, or NOT_FOUND if
+     * the region is not in the table
+     */
+    public int find(long key) {
+        int low = 0;
+        int high = this.numEntries - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = this.getKey(mid);
+
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    public long getKey(int entry) {
+        return this.buffer.getLong(HEADER_BYTES + 8 * entry);
+    }
+
+    public int getMaxCells() {
+        return this.maxCells;
+    }
+
+    public int getNumEntries() {
+        return this.numEntries;
+    }
+
+    /* Return the first opening of the entry's region. Openings are
+     * positions in the file, the next following where the last ends
+     */
+    public int getFirstOpening(int entry) {
+        return this.openingsOffset +
+            this.buffer.getInt(this.startsOffset + 4 * entry);
+    }
+
+    /* Return the position just past the last opening of the entry's region
+     */
+    public int getOpeningsEnd(int entry) {
+        return this.getFirstOpening(entry + 1);
+    }
+
+    public int getNextOpening(int opening) {
+        return opening + OPENING_HEADER_BYTES +
+            this.getNumChainsLeft(opening) + this.getNumLoopsLeft(opening) +
+            4 * this.getNumRegionsLeft(opening);
+    }
+
+    /* Return the number of cells the opponent captures once the opening's
+     * arc is taken
+     */
+    public int getCaptured(int opening) {
+        return this.buffer.get(opening);
+    }
+
+    public int getNumChainsLeft(int opening) {
+        return this.buffer.get(opening + 1);
+    }
+
+    public int getNumLoopsLeft(int opening) {
+        return this.buffer.get(opening + 2);
+    }
+
+    public int getNumRegionsLeft(int opening) {
+        return this.buffer.get(opening + 3);
+    }
+
+    /* Return the length of a chain the opening leaves
+     */
+    public int getChainLeft(int opening, int i) {
+        return this.buffer.get(opening + OPENING_HEADER_BYTES + i);
+    }
+
+    /* Return the length of a loop the opening leaves
+     */
+    public int getLoopLeft(int opening, int i) {
+        return this.buffer.get(opening + OPENING_HEADER_BYTES +
+            this.getNumChainsLeft(opening) + i);
+    }
+
+    /* Return the entry of a region the opening leaves
+     */
+    public int getRegionLeft(int opening, int i) {
+        return this.buffer.getInt(opening + OPENING_HEADER_BYTES +
+            this.getNumChainsLeft(opening) + this.getNumLoopsLeft(opening) +
+            4 * i);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int maxCells = (args.length > 0) ? Integer.parseInt(args[0]) :
+            DEFAULT_MAX_CELLS;
+        String path = (args.length > 1) ? args[1] : "endgame.tb";
+
+        if (maxCells < 1 || maxCells > Byte.MAX_VALUE) {
+            // Lengths are kept as bytes
+            throw new IllegalArgumentException("Tablebase cells must be " +
+                "from 1 to " + Byte.MAX_VALUE + ", not " + maxCells);
+        }
+
+        long start = System.nanoTime();
+        ByteBuffer table = new Generator(maxCells).generate();
+        FileChannel channel = FileChannel.open(Paths.get(path),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+
+        try {
+            while (table.hasRemaining()) {
+                channel.write(table);
+            }
+        } finally {
+            channel.close();
+        }
+
+        EndgameTablebase tablebase = open(path);
+        System.out.println("Wrote " + tablebase.getNumEntries() +
+            " regions of up to " + maxCells + " cells to " + path + " in " +
+            (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /* Generator of the tablebase, listing every region by its arcs and
+     * opening each of them
+     */
+    private static class Generator {
+
+        private int maxCells;
+        private EndgameGraph graph;
+
+        // Ends of every arc a region may have, from no higher than to and
+        // not both GROUND
+        private int[] slotFrom;
+        private int[] slotTo;
+        private int numSlots;
+
+        // Entry of every region listed by key, in the order listed, with
+        // the key of every entry and where its openings start
+        private HashMap<Long, Integer> entries;
+        private long[] keys;
+        private int[] starts;
+        private int numEntries;
+
+        // Openings of every entry in the order listed, regions left by the
+        // order listed as well
+        private ByteBuffer openings;
+
+        // What the arc last opened leaves, and the cells it captures
+        private int[] chainsLeft;
+        private int numChainsLeft;
+        private int[] loopsLeft;
+        private int numLoopsLeft;
+        private int[] regionsLeft;
+        private int numRegionsLeft;
+        private int captured;
+
+        Generator(int maxCells) {
+            this.maxCells = maxCells;
+            this.graph = new EndgameGraph();
+            this.slotFrom = new int[EndgameGraph.MAX_ARCS];
+            this.slotTo = new int[EndgameGraph.MAX_ARCS];
+
+            this.entries = new HashMap<Long, Integer>();
+            this.keys = new long[1024];
+            this.starts = new int[1024];
+            this.openings = ByteBuffer.allocate(1 << 16);
+
+            this.chainsLeft = new int[EndgameGraph.MAX_ARCS];
+            this.loopsLeft = new int[EndgameGraph.MAX_ARCS];
+            this.regionsLeft = new int[EndgameGraph.MAX_ARCS];
+        }
+
+        /* List every region in order of cells, so the regions an arc
+         * leaves are always listed first.
+         *
+         * Return the contents of the tablebase file
+         */
+        ByteBuffer generate() {
+            for (int cells = 1; cells <= this.maxCells; cells++) {
+                int maxJoints = Math.min(cells, EndgameGraph.MAX_JOINTS);
+
+                for (int joints = 1; joints <= maxJoints; joints++) {
+                    this.numSlots = 0;
+                    for (int from = EndgameGraph.GROUND; from <= joints;
+                        from++) {
+                        for (int to = Math.max(from, 1); to <= joints;
+                            to++) {
+                            this.slotFrom[this.numSlots] = from;
+                            this.slotTo[this.numSlots] = to;
+                            this.numSlots++;
+                        }
+                    }
+
+                    this.graph.clear(joints);
+                    this.list(0, 1, cells - joints);
+                }
+            }
+            return this.write();
+        }
+
+        /* Return the file: the entries sorted by key, regions left
+         * renumbered by the sorted order
+         */
+        private ByteBuffer write() {
+            long[] sortedKeys = Arrays.copyOf(this.keys, this.numEntries);
+            Arrays.sort(sortedKeys);
+
+            int[] sortedEntry = new int[this.numEntries];
+            for (int i = 0; i < this.numEntries; i++) {
+                sortedEntry[this.entries.get(sortedKeys[i])] = i;
+            }
+
+            int openingsBytes = this.openings.position();
+            ByteBuffer table = ByteBuffer.allocate(HEADER_BYTES +
+                12 * this.numEntries + 4 + openingsBytes);
+            table.putInt(MAGIC).putInt(VERSION).putInt(this.maxCells)
+                .putInt(EndgameGraph.MAX_JOINTS).putInt(this.numEntries)
+                .putInt(openingsBytes);
+            for (long key: sortedKeys) {
+                table.putLong(key);
+            }
+
+            int start = 0;
+            int openingsStart = table.position() + 4 * (this.numEntries + 1);
+            for (long key: sortedKeys) {
+                int entry = this.entries.get(key);
+                int end = (entry + 1 < this.numEntries) ?
+                    this.starts[entry + 1] : openingsBytes;
+
+                table.putInt(start);
+                // Copy the openings, renumbering the regions they leave
+                for (int p = this.starts[entry]; p < end; ) {
+                    int numChains = this.openings.get(p + 1);
+                    int numLoops = this.openings.get(p + 2);
+                    int numRegions = this.openings.get(p + 3);
+                    int lengths = OPENING_HEADER_BYTES + numChains +
+                        numLoops;
+
+                    for (int i = 0; i < lengths; i++) {
+                        table.put(openingsStart + start++,
+                            this.openings.get(p + i));
+                    }
+                    for (int i = 0; i < numRegions; i++) {
+                        table.putInt(openingsStart + start, sortedEntry[
+                            this.openings.getInt(p + lengths + 4 * i)]);
+                        start += 4;
+                    }
+                    p += lengths + 4 * numRegions;
+                }
+            }
+            table.putInt(start);
+
+            table.position(0);
+            return table;
+        }
+
+        /* Add arcs of the slot, no shorter than minLength, then of the
+         * slots after it, until the arcs hold cellsLeft more cells, and
+         * add every region that makes
+         */
+        private void list(int slot, int minLength, int cellsLeft) {
+            if (slot == this.numSlots) {
+                if (cellsLeft == 0 && this.isRegion()) {
+                    this.add();
+                }
+                return;
+            }
+
+            this.list(slot + 1, 1, cellsLeft);
+
+            int from = this.slotFrom[slot];
+            int to = this.slotTo[slot];
+            // A chain from a cell back to itself goes round two cells or
+            // more
+            int length = (from == to) ? Math.max(minLength, 2) : minLength;
+            for (; length <= cellsLeft; length++) {
+                this.graph.addArc(from, to, length);
+                if (this.graph.getDegree(to) <= Cell.MAX_EDGES &&
+                    this.graph.getDegree(from) <= Cell.MAX_EDGES) {
+                    this.list(slot, length, cellsLeft - length);
+                }
+                this.graph.removeLastArc();
+            }
+        }
+
+        /* Return true if every joint of the graph has three sides or more,
+         * the joints are all joined by arcs and they are numbered in the
+         * order of the graph's key
+         */
+        private boolean isRegion() {
+            int numJoints = this.graph.getNumJoints();
+
+            for (int joint = 1; joint <= numJoints; joint++) {
+                if (this.graph.getDegree(joint) < 3) {
+                    return false;
+                }
+            }
+
+            int[] parent = new int[numJoints + 1];
+            for (int joint = 1; joint <= numJoints; joint++) {
+                parent[joint] = joint;
+            }
+            for (int a = 0; a < this.graph.getNumArcs(); a++) {
+                if (this.graph.getArcFrom(a) != EndgameGraph.GROUND) {
+                    parent[root(parent, this.graph.getArcFrom(a))] =
+                        root(parent, this.graph.getArcTo(a));
+                }
+            }
+            for (int joint = 2; joint <= numJoints; joint++) {
+                if (root(parent, joint) != root(parent, 1)) {
+                    return false;
+                }
+            }
+            return this.graph.isCanonical();
+        }
+
+        /* Open every different arc of the region of the graph and add the
+         * region to the table
+         */
+        private void add() {
+            long key = this.graph.getKey();
+            if (this.entries.containsKey(key)) {
+                throw new IllegalStateException("Two regions share key " +
+                    key);
+            }
+            if (this.numEntries == this.keys.length) {
+                this.keys = Arrays.copyOf(this.keys, 2 * this.numEntries);
+                this.starts = Arrays.copyOf(this.starts, 2 * this.numEntries);
+            }
+            this.entries.put(key, this.numEntries);
+            this.keys[this.numEntries] = key;
+            this.starts[this.numEntries] = this.openings.position();
+            this.numEntries++;
+
+            for (int a = 0; a < this.graph.getNumArcs(); a++) {
+                if (this.findSameArc(a) != a) {
+                    // Opening either of two alike arcs leaves the same
+                    continue;
+                }
+
+                this.openArc(a);
+                this.reserve(OPENING_HEADER_BYTES + this.numChainsLeft +
+                    this.numLoopsLeft + 4 * this.numRegionsLeft);
+                this.openings.put((byte) this.captured)
+                    .put((byte) this.numChainsLeft)
+                    .put((byte) this.numLoopsLeft)
+                    .put((byte) this.numRegionsLeft);
+                for (int i = 0; i < this.numChainsLeft; i++) {
+                    this.openings.put((byte) this.chainsLeft[i]);
+                }
+                for (int i = 0; i < this.numLoopsLeft; i++) {
+                    this.openings.put((byte) this.loopsLeft[i]);
+                }
+                for (int i = 0; i < this.numRegionsLeft; i++) {
+                    this.openings.putInt(this.regionsLeft[i]);
+                }
+            }
+        }
+
+        /* Make room for the given number of bytes more of openings
+         */
+        private void reserve(int bytes) {
+            if (this.openings.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(
+                    2 * this.openings.capacity());
+                this.openings.flip();
+                larger.put(this.openings);
+                this.openings = larger;
+            }
+        }
+
+        /* Return the first arc of the graph with the same ends and length
+         * as the given one
+         */
+        private int findSameArc(int arc) {
+            for (int a = 0; ; a++) {
+                if (this.graph.getArcFrom(a) == this.graph.getArcFrom(arc) &&
+                    this.graph.getArcTo(a) == this.graph.getArcTo(arc) &&
+                    this.graph.getArcLength(a) ==
+                    this.graph.getArcLength(arc)) {
+                    return a;
+                }
+            }
+        }
+
+        /* Open an arc of the graph: find the cells captured and split what
+         * is left into chains, loops and regions already listed
+         */
+        private void openArc(int arc) {
+            int numJoints = this.graph.getNumJoints();
+            int numArcs = this.graph.getNumArcs();
+
+            int[] from = new int[numArcs + numJoints];
+            int[] to = new int[numArcs + numJoints];
+            int[] length = new int[numArcs + numJoints];
+            boolean[] alive = new boolean[numArcs + numJoints];
+            int[] degree = new int[numJoints + 1];
+            int numAll = numArcs;
+
+            for (int a = 0; a < numArcs; a++) {
+                from[a] = this.graph.getArcFrom(a);
+                to[a] = this.graph.getArcTo(a);
+                length[a] = this.graph.getArcLength(a);
+                alive[a] = true;
+                degree[from[a]]++;
+                degree[to[a]]++;
+            }
+
+            this.numChainsLeft = 0;
+            this.numLoopsLeft = 0;
+            this.numRegionsLeft = 0;
+            this.captured = length[arc];
+            alive[arc] = false;
+            degree[from[arc]]--;
+            degree[to[arc]]--;
+
+            // A joint left with one side, by opening an arc from it back to
+            // itself, is captured as well, and so is the chain beyond it
+            for (int joint = 1; joint <= numJoints; joint++) {
+                if (degree[joint] != 1) {
+                    continue;
+                }
+                int next = findArc(joint, from, to, alive, numAll);
+                int other = (from[next] == joint) ? to[next] : from[next];
+
+                this.captured += 1 + length[next];
+                alive[next] = false;
+                degree[joint] = 0;
+                degree[other]--;
+            }
+
+            // A joint left with two sides joins its chains into one
+            for (int joint = 1; joint <= numJoints; joint++) {
+                if (degree[joint] != 2) {
+                    continue;
+                }
+                int first = findArc(joint, from, to, alive, numAll);
+                alive[first] = false;
+                degree[joint] = 0;
+
+                if (from[first] == to[first]) {
+                    this.loopsLeft[this.numLoopsLeft++] = length[first] + 1;
+                    continue;
+                }
+                int second = findArc(joint, from, to, alive, numAll);
+                alive[second] = false;
+
+                int firstEnd = (from[first] == joint) ? to[first] :
+                    from[first];
+                int secondEnd = (from[second] == joint) ? to[second] :
+                    from[second];
+                int joined = length[first] + length[second] + 1;
+                if (firstEnd == EndgameGraph.GROUND &&
+                    secondEnd == EndgameGraph.GROUND) {
+                    this.chainsLeft[this.numChainsLeft++] = joined;
+                } else {
+                    from[numAll] = Math.min(firstEnd, secondEnd);
+                    to[numAll] = Math.max(firstEnd, secondEnd);
+                    length[numAll] = joined;
+                    alive[numAll] = true;
+                    numAll++;
+                }
+            }
+
+            // Split the joints left into regions by the arcs between them
+            int[] parent = new int[numJoints + 1];
+            for (int joint = 1; joint <= numJoints; joint++) {
+                parent[joint] = joint;
+            }
+            for (int a = 0; a < numAll; a++) {
+                if (alive[a] && from[a] != EndgameGraph.GROUND) {
+                    parent[root(parent, from[a])] = root(parent, to[a]);
+                }
+            }
+
+            int[] number = new int[numJoints + 1];
+            for (int joint = 1; joint <= numJoints; joint++) {
+                if (degree[joint] == 0 || root(parent, joint) != joint) {
+                    continue;
+                }
+
+                // Number the region's joints from 1
+                int regionJoints = 0;
+                for (int other = 1; other <= numJoints; other++) {
+                    if (degree[other] > 0 && root(parent, other) == joint) {
+                        number[other] = ++regionJoints;
+                    }
+                }
+
+                EndgameGraph region = new EndgameGraph();
+                region.clear(regionJoints);
+                for (int a = 0; a < numAll; a++) {
+                    if (alive[a] && root(parent, to[a]) == joint) {
+                        region.addArc(number[from[a]], number[to[a]],
+                            length[a]);
+                    }
+                }
+
+                Integer entry = this.entries.get(region.getKey());
+                if (entry == null) {
+                    throw new IllegalStateException("Region left by an " +
+                        "arc was not listed first");
+                }
+                this.regionsLeft[this.numRegionsLeft++] = entry;
+            }
+        }
+
+        /* Return a live arc with an end at the joint
+         */
+        private static int findArc(int joint, int[] from, int[] to,
+            boolean[] alive, int numAll) {
+            for (int a = 0; a < numAll; a++) {
+                if (alive[a] && (from[a] == joint || to[a] == joint)) {
+                    return a;
+                }
+            }
+            throw new IllegalStateException("Joint " + joint +
+                " has no arc left");
+        }
+
+        private static int root(int[] parent, int joint) {
+            while (parent[joint] != joint) {
+                joint = parent[joint];
+            }
+            return joint;
+        }
+
+    }
+
+}
@@ -0,0 +1,359 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import aiproj.hexifence.*;
+
+/*
+ *  ExactSolver class
+ *  Solves a board exactly by negamax alpha-beta over every edge left, for
+ *  boards as small as dimension 2. A position's value is the number of
+ *  cells the player to move captures over the rest of the game less those
+ *  the opponent captures, which only depends on the edges taken, so
+ *  positions are remembered in a table by the edges taken, the same under
+ *  every symmetry of the board.
+ *
+ *  Three rules cut the tree down:
+ *    a cell that can be captured without making another one capturable is
+ *      always worth capturing at once
+ *    once no safe edges are left and the cells form independent chains and
+ *      loops, the endgame solver gives the value
+ *    captures are tried first, then safe edges, then the edges that concede
+ *      the fewest cells
+ *
+ *  A solve can be given the timer of a move, once half of which is used
+ *  it gives up, leaving the rest of the move's time to whatever plays the
+ *  move instead
+ */
+public class ExactSolver implements Piece {
+
+    // Returned when a solve uses half the time of its move first
+    public static final int ABORTED = Integer.MIN_VALUE;
+
+    // Bounds of the values kept in the table
+    private static final int EXACT = 0;
+    private static final int LOWER = 1;
+    private static final int UPPER = 2;
+
+    // Set in every data word stored, as the key of no edges taken is 0
+    private static final int STORED = 1 << 31;
+
+    private static final int MAX_PLY = 256;
+
+    // The clock is only read once every so many nodes
+    private static final int NODES_PER_TIME_CHECK = 1024;
+
+    private BitBoard board;
+    private BoardLayout layout;
+    private Zobrist zobrist;
+    private EndgameSolver endgameSolver;
+
+    // Table of values by symmetric key, each data word holding the value,
+    // its bound and the best edge
+    private long[] tableKeys;
+    private int[] tableData;
+    private int tableMask;
+
+    private long nodes;
+    private SearchTimer timer;
+    private boolean aborted;
+
+    // Key of the edges taken under every symmetry, kept up to date by every
+    // move of the solve
+    private long[] symmetricKeys;
+
+    // Edges of every ply, and the cells each concedes while sorting
+    private int[][] moveBuffers;
+    private int[][] scoreBuffers;
+
+    public ExactSolver(BitBoard board, int tableEntries) {
+        this.board = board;
+        this.layout = board.getLayout();
+        this.zobrist = Zobrist.forDimension(board.getBoardDimension());
+        // The tablebase's regions are not exact, so only chains and loops
+        // are solved without a search
+        this.endgameSolver = new EndgameSolver(this.layout.getNumCells(),
+            EndgameCache.getShared(), null);
+
+        int size = Integer.highestOneBit(Math.max(1, tableEntries));
+        this.tableKeys = new long[size];
+        this.tableData = new int[size];
+        this.tableMask = size - 1;
+
+        this.symmetricKeys = new long[BoardLayout.NUM_SYMMETRIES];
+        this.moveBuffers = new int[MAX_PLY][this.layout.getNumEdges()];
+        this.scoreBuffers = new int[MAX_PLY][this.layout.getNumEdges()];
+    }
+
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /* Return the value of the board to the player to move, or ABORTED
+     * if half the time of the timer's move, which may be null, is used first
+     */
+    public int solve(SearchTimer timer) {
+        this.startSolve(timer);
+
+        int value = this.negamax(0, -this.layout.getNumCells(),
+            this.layout.getNumCells());
+        return this.aborted ? ABORTED : value;
+    }
+
+    /* Return an edge of the board that keeps its value to the player to
+     * move, or BoardLayout.NO_EDGE if half the time of the timer's move,
+     * which may be null, is used first or no edge is left
+     */
+    public int solveBestEdge(SearchTimer timer) {
+        this.startSolve(timer);
+        if (this.board.getPossibleMoves() == 0) {
+            return BoardLayout.NO_EDGE;
+        }
+
+        int value = this.negamax(0, -this.layout.getNumCells(),
+            this.layout.getNumCells());
+        if (this.aborted) {
+            return BoardLayout.NO_EDGE;
+        }
+
+        // Find the child worth the root's value
+        int player = this.board.getSideToMove();
+        int[] edges = this.moveBuffers[0];
+        int numEdges = this.generateMoves(0, edges);
+        for (int i = 0; i < numEdges; i++) {
+            int numCaptured = this.makeMove(edges[i], player);
+            int childValue = this.valueAfter(1, numCaptured, value - 1,
+                value);
+            this.unmakeMove(edges[i]);
+
+            if (this.aborted) {
+                return BoardLayout.NO_EDGE;
+            }
+            if (childValue >= value) {
+                return edges[i];
+            }
+        }
+        throw new IllegalStateException("No edge keeps the solved value");
+    }
+
+    private void startSolve(SearchTimer timer) {
+        this.nodes = 0;
+        this.timer = timer;
+        this.aborted = false;
+
+        for (int s = 0; s < BoardLayout.NUM_SYMMETRIES; s++) {
+            this.symmetricKeys[s] = 0;
+        }
+        for (int e = 0; e < this.layout.getNumEdges(); e++) {
+            if (this.board.isEdgeCaptured(e)) {
+                this.toggleSymmetricKeys(e);
+            }
+        }
+    }
+
+    private int makeMove(int edge, int player) {
+        this.toggleSymmetricKeys(edge);
+        return this.board.makeMove(edge, player);
+    }
+
+    private void unmakeMove(int edge) {
+        this.toggleSymmetricKeys(edge);
+        this.board.unmakeMove();
+    }
+
+    private void toggleSymmetricKeys(int edge) {
+        for (int s = 0; s < BoardLayout.NUM_SYMMETRIES; s++) {
+            this.symmetricKeys[s] ^= this.zobrist.getSymmetricTakenKey(edge,
+                s);
+        }
+    }
+
+    /* Return the value of the position after a move that captured the given
+     * number of cells, to the player who made it
+     */
+    private int valueAfter(int ply, int numCaptured, int alpha, int beta) {
+        if (numCaptured > 0) {
+            // The same player moves again
+            return numCaptured + this.negamax(ply, alpha - numCaptured,
+                beta - numCaptured);
+        }
+        return -this.negamax(ply, -beta, -alpha);
+    }
+
+    private int negamax(int ply, int alpha, int beta) {
+        this.nodes++;
+        if (this.timer != null && this.nodes % NODES_PER_TIME_CHECK == 0 &&
+            this.timer.isPastHalfTime()) {
+            this.aborted = true;
+        }
+        if (this.aborted || this.board.getPossibleMoves() == 0) {
+            return 0;
+        }
+
+        int player = this.board.getSideToMove();
+
+        int freeEdge = this.getFreeCapture();
+        if (freeEdge != BoardLayout.NO_EDGE) {
+            int numCaptured = this.makeMove(freeEdge, player);
+            int value = this.valueAfter(ply + 1, numCaptured, alpha, beta);
+            this.unmakeMove(freeEdge);
+            return value;
+        }
+
+        if (this.board.countSafeEdges() == 0) {
+            int value = this.endgameSolver.solve(this.board);
+            if (value != EndgameSolver.UNKNOWN) {
+                return value;
+            }
+        }
+
+        int symmetry = this.canonicalSymmetry();
+        long key = this.symmetricKeys[symmetry];
+        int slot = (int) (key ^ (key >>> 32)) & this.tableMask;
+        int firstEdge = BoardLayout.NO_EDGE;
+        if (this.tableKeys[slot] == key && this.tableData[slot] != 0) {
+            int data = this.tableData[slot];
+            int value = (byte) data;
+            int bound = (data >>> 8) & 3;
+
+            if (bound == EXACT ||
+                (bound == LOWER && value >= beta) ||
+                (bound == UPPER && value <= alpha)) {
+                return value;
+            }
+            // The best edge is kept under the symmetry of the key
+            int storedEdge = ((data & ~STORED) >>> 10) - 1;
+            if (storedEdge != BoardLayout.NO_EDGE) {
+                firstEdge = this.layout.getSymmetricEdge(
+                    this.layout.getInverseSymmetry(symmetry), storedEdge);
+            }
+        }
+
+        int originalAlpha = alpha;
+        int bestValue = Integer.MIN_VALUE;
+        int bestEdge = BoardLayout.NO_EDGE;
+        int[] edges = this.moveBuffers[ply];
+        int numEdges = this.generateMoves(ply, edges);
+        moveToFront(edges, numEdges, firstEdge);
+
+        for (int i = 0; i < numEdges; i++) {
+            int numCaptured = this.makeMove(edges[i], player);
+            int value = this.valueAfter(ply + 1, numCaptured, alpha, beta);
+            this.unmakeMove(edges[i]);
+
+            if (this.aborted) {
+                return 0;
+            }
+            if (value > bestValue) {
+                bestValue = value;
+                bestEdge = edges[i];
+            }
+            alpha = Math.max(alpha, value);
+            if (alpha >= beta) {
+                break;
+            }
+        }
+
+        int bound = (bestValue <= originalAlpha) ? UPPER :
+            (bestValue >= beta) ? LOWER : EXACT;
+        this.tableKeys[slot] = key;
+        this.tableData[slot] = STORED | (bestValue & 0xff) | (bound << 8) |
+            ((this.layout.getSymmetricEdge(symmetry, bestEdge) + 1) << 10);
+        return bestValue;
+    }
+
+    /* Return the edge completing a capturable cell whose other cell, if
+     * any, keeps at least two sides, or BoardLayout.NO_EDGE. Such a
+     * capture hands nothing on, so declining it never gains anything
+     */
+    public int getFreeCapture() {
+        if (this.board.numCellsAvailableForCapture() == 0) {
+            return BoardLayout.NO_EDGE;
+        }
+
+        for (int c = 0; c < this.layout.getNumCells(); c++) {
+            if (this.board.getNumSidesUncaptured(c) != 1) {
+                continue;
+            }
+
+            int edge = this.board.getLastUncapturedEdge(c);
+            boolean free = true;
+            for (int other: this.layout.getEdgeCells(edge)) {
+                if (other != c &&
+                    this.board.getNumSidesUncaptured(other) < 3) {
+                    free = false;
+                }
+            }
+            if (free) {
+                return edge;
+            }
+        }
+        return BoardLayout.NO_EDGE;
+    }
+
+    /* Generate every edge left into the buffer, captures first, then safe
+     * edges, then the others by the fewest cells conceded.
+     *
+     * Return the number of edges
+     */
+    private int generateMoves(int ply, int[] edges) {
+        int[] scores = this.scoreBuffers[ply];
+        int numEdges = 0;
+        int player = this.board.getSideToMove();
+
+        for (int e = 0; e < this.layout.getNumEdges(); e++) {
+            if (this.board.isEdgeCaptured(e)) {
+                continue;
+            }
+
+            int score;
+            if (this.board.isCapturingEdge(e)) {
+                score = -2;
+            } else if (this.board.isSafeEdge(e)) {
+                score = -1;
+            } else {
+                score = this.board.countCellsConceded(e, player);
+            }
+
+            // Insertion sort by score, keeping index order among equals
+            int j = numEdges - 1;
+            while (j >= 0 && scores[j] > score) {
+                edges[j + 1] = edges[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            edges[j + 1] = e;
+            scores[j + 1] = score;
+            numEdges++;
+        }
+        return numEdges;
+    }
+
+    /* Return the symmetry under which the key of the edges taken is
+     * smallest, so symmetric positions share their entry
+     */
+    private int canonicalSymmetry() {
+        int best = 0;
+
+        for (int s = 1; s < BoardLayout.NUM_SYMMETRIES; s++) {
+            if (this.symmetricKeys[s] < this.symmetricKeys[best]) {
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    private static void moveToFront(int[] edges, int numEdges, int edge) {
+        for (int i = 0; i < numEdges; i++) {
+            if (edges[i] == edge) {
+                System.arraycopy(edges, 0, edges, 1, i);
+                edges[0] = edge;
+                return;
+            }
+        }
+    }
+
+}
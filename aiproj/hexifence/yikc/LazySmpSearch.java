@@ -0,0 +1,188 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import aiproj.hexifence.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/*
+ *  LazySmpSearch class
+ *  Lazy SMP search: the player's search deepens iteratively as usual while
+ *  helper threads search the same root on their own copies of the board.
+ *  Every thread has its own history of moves, but all of them share one
+ *  lock-free transposition table, which is all the helpers are for. What
+ *  they store orders and cuts off the player's search, and every other
+ *  helper starts a ply deeper so the threads spread over different depths
+ *  rather than all searching the same nodes.
+ *
+ *  The helpers run on a pool of the search's own, so they never wait
+ *  behind the threads of another player's search
+ */
+public class LazySmpSearch implements Piece, MoveSearch {
+
+    private BitBoard board;
+
+    private ForkJoinPool pool;
+    private TranspositionTable transpositionTable;
+    private SearchTimer timer;
+
+    // The player's search, whose result is played, and the helpers
+    private Search mainSearch;
+    private Search[] helpers;
+
+    public LazySmpSearch(BitBoard board, int player, SearchConfig config) {
+        int numHelpers = Math.max(0, config.getThreads() - 1);
+
+        this.board = board;
+
+        this.pool = new ForkJoinPool(Math.max(1, numHelpers));
+        this.transpositionTable = new TranspositionTable(
+            config.getTtEntries(), TranspositionTable.TWO_TIER);
+        this.timer = new SearchTimer(config.getMoveTimeMillis(),
+            config.getGameTimeMillis());
+
+        this.mainSearch = new Search(board, player, config,
+            this.transpositionTable);
+        this.helpers = new Search[numHelpers];
+        for (int i = 0; i < numHelpers; i++) {
+            this.helpers[i] = new Search(new BitBoard(board), player, config,
+                this.transpositionTable);
+        }
+    }
+
+    @Override
+    public long getNodes() {
+        long nodes = this.mainSearch.getNodes();
+
+        for (Search helper: this.helpers) {
+            nodes += helper.getNodes();
+        }
+        return nodes;
+    }
+
+    @Override
+    public long getCutoffs() {
+        long cutoffs = this.mainSearch.getCutoffs();
+
+        for (Search helper: this.helpers) {
+            cutoffs += helper.getCutoffs();
+        }
+        return cutoffs;
+    }
+
+    @Override
+    public long getFirstMoveCutoffs() {
+        long cutoffs = this.mainSearch.getFirstMoveCutoffs();
+
+        for (Search helper: this.helpers) {
+            cutoffs += helper.getFirstMoveCutoffs();
+        }
+        return cutoffs;
+    }
+
+    @Override
+    public long getAspirationSearches() {
+        long searches = this.mainSearch.getAspirationSearches();
+
+        for (Search helper: this.helpers) {
+            searches += helper.getAspirationSearches();
+        }
+        return searches;
+    }
+
+    @Override
+    public long getReSearches() {
+        long reSearches = this.mainSearch.getReSearches();
+
+        for (Search helper: this.helpers) {
+            reSearches += helper.getReSearches();
+        }
+        return reSearches;
+    }
+
+    @Override
+    public void close() {
+        this.pool.shutdownNow();
+    }
+
+    @Override
+    public Move findBestMove() {
+        // Both players share the moves left, this player makes about half
+        this.timer.startMove(this.board.getPossibleMoves() / 2 + 1);
+        Move bestMove = this.findBestMove(this.timer);
+        this.timer.stopMove();
+
+        return bestMove;
+    }
+
+    /* Run the helpers for as long as the player's search deepens.
+     *
+     * Return the best move of the player's last completed iteration
+     */
+    @Override
+    public Move findBestMove(SearchTimer timer) {
+        this.transpositionTable.newSearch();
+        this.mainSearch.beginMove(timer);
+
+        ArrayList<Future<?>> running = new ArrayList<Future<?>>();
+        for (int i = 0; i < this.helpers.length; i++) {
+            final Search helper = this.helpers[i];
+            final int firstDepth = 1 + (i % 2);
+
+            helper.getBoard().copyFrom(this.board);
+            helper.beginMove(timer);
+            running.add(this.pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    helper.deepen(firstDepth, true);
+                }
+            }));
+        }
+
+        Move bestMove = this.mainSearch.deepen(1, false);
+
+        for (Search helper: this.helpers) {
+            helper.stop();
+        }
+        this.waitFor(running);
+
+        if (bestMove == null) {
+            // Not even the first iteration finished, take any safe move
+            bestMove = this.mainSearch.orderRootMoves(
+                TranspositionTable.NO_MOVE).get(0);
+        }
+        return bestMove;
+    }
+
+    /* Wait for the stopped helpers to return, so none of them is still
+     * using its board when the next move is made
+     */
+    private void waitFor(ArrayList<Future<?>> running) {
+        boolean interrupted = false;
+
+        for (Future<?> helper: running) {
+            while (true) {
+                try {
+                    helper.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Search thread failed",
+                        e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import aiproj.hexifence.*;
+
+import java.io.PrintStream;
+
+/*
+ *  Monte Carlo tree search player
+ *  Plays every move by MctsSearch within its time budget, with the
+ *  exploration constant, threads and parallel mode set in SearchConfig
+ */
+public class MctsPlayer implements Player, Piece {
+
+    private BitBoard board;
+    private int player;
+    private int boardDimension;
+
+    private MctsSearch search;
+
+    /* This function is called by the referee to initialize the player.
+     *  Return 0 for successful initialization and -1 for failed one.
+     */
+    @Override
+    public int init(int n, int p) {
+        if (p != BLUE && p != RED) {
+            return INVALID;
+        }
+
+        this.player = p;
+        this.boardDimension = n;
+        this.board = new BitBoard(this.boardDimension);
+        this.search = new MctsSearch(this.board, this.player,
+            SearchConfig.fromSystemProperties());
+
+        return 0;
+    }
+
+    /* Function called by referee to request a move by the player.
+     *  Return object of class Move
+     */
+    @Override
+    public Move makeMove() {
+        Move m = this.search.findBestMove();
+
+        this.board.update(m);
+        this.closeSearchIfOver();
+        return m;
+    }
+
+    /* Function called by referee to inform the player about the opponent's
+     * move. Return -1 if the move is illegal otherwise return 0 if no cell
+     * has been captured by the opponent and return 1 if one or more cells
+     * are captured by the opponent
+     */
+    @Override
+    public int opponentMove(Move m) {
+        Point point = new Point(m.Row, m.Col);
+
+        if (m.P == this.player || !this.board.validPoint(point)) {
+            return INVALID;
+        }
+
+        int value = this.board.isCapturingPoint(point) ? 1 : 0;
+
+        this.board.setLastOpponentPoint(point);
+        this.board.update(m);
+        this.closeSearchIfOver();
+        return value;
+    }
+
+    /* Stop the threads of the search once the game is over, as the referee
+     * never tells a player it is done with it
+     */
+    private void closeSearchIfOver() {
+        if (this.board.getPossibleMoves() == 0) {
+            this.search.close();
+        }
+    }
+
+    /* This function when called by referee should return the winner
+     *  Return -1, 0, 1, 2, 3 for INVALID, EMPTY, BLUE, RED, DEAD respectively
+     */
+    @Override
+    public int getWinner() {
+        return this.board.getWinner();
+    }
+
+    /* Function called by referee to get the board configuration in
+     * String format
+     */
+    @Override
+    public void printBoard(PrintStream output) {
+        this.board.printBoard();
+    }
+
+}
@@ -0,0 +1,406 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import aiproj.hexifence.*;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/*
+ *  MctsSearch class
+ *  Monte Carlo tree search of a player's board within the move's time
+ *  budget. Every iteration walks down the tree by UCT, the child with the
+ *  highest mean result plus the exploration constant times
+ *  sqrt(ln(visits of the parent) / visits of the child), plays the rest of
+ *  the game out and counts the result at every node it passed. The move
+ *  played is the root's most visited child.
+ *
+ *  The tree only branches where a player has a choice worth making: a
+ *  capture is always taken, and while safe edges are left only safe edges
+ *  are tried. Playouts are played by PlayoutKernel, capturing whenever they
+ *  can, then taking a random safe edge, then the edge that concedes the
+ *  fewest cells.
+ *
+ *  With more than one thread the search runs either tree-parallel, every
+ *  thread walking the same tree on its own copy of the board, or
+ *  root-parallel, every thread growing a tree of its own with the root's
+ *  visits summed at the end. In a shared tree a thread adds a virtual loss
+ *  to every node it walks through until its playout is counted, so the
+ *  other threads spread over other moves meanwhile. The threads are a pool
+ *  of the search's own, so none of them waits behind the threads of
+ *  another player's search and starts late
+ */
+public class MctsSearch implements Piece, MoveSearch {
+
+    private BitBoard board;
+    private int player;
+
+    private ForkJoinPool pool;
+    private SearchTimer timer;
+
+    // Timer of the move being searched, the search's own or the caller's
+    private SearchTimer moveTimer;
+
+    private double exploration;
+    private int virtualLoss;
+    private int parallelMode;
+
+    // Copy of the board, playout kernel and random numbers of every thread
+    private BitBoard[] boards;
+    private PlayoutKernel[] kernels;
+    private SplittableRandom[] randoms;
+
+    private long playouts;
+
+    public MctsSearch(BitBoard board, int player, SearchConfig config) {
+        int threads = Math.max(1, config.getThreads());
+
+        this.board = board;
+        this.player = player;
+
+        // The calling thread grows the first tree itself
+        this.pool = new ForkJoinPool(Math.max(1, threads - 1));
+        this.timer = new SearchTimer(config.getMoveTimeMillis(),
+            config.getGameTimeMillis());
+
+        this.exploration = config.getMctsExploration();
+        this.virtualLoss = config.getVirtualLoss();
+        this.parallelMode = config.getMctsParallelMode();
+
+        SplittableRandom random = new SplittableRandom();
+        this.boards = new BitBoard[threads];
+        this.kernels = new PlayoutKernel[threads];
+        this.randoms = new SplittableRandom[threads];
+        for (int i = 0; i < threads; i++) {
+            this.boards[i] = new BitBoard(board);
+            this.kernels[i] = new PlayoutKernel(board.getLayout());
+            this.randoms[i] = random.split();
+        }
+    }
+
+    /* Return the number of playouts made so far, by every thread
+     */
+    @Override
+    public long getNodes() {
+        return this.playouts;
+    }
+
+    @Override
+    public long getCutoffs() {
+        return 0;
+    }
+
+    @Override
+    public long getFirstMoveCutoffs() {
+        return 0;
+    }
+
+    @Override
+    public long getAspirationSearches() {
+        return 0;
+    }
+
+    @Override
+    public long getReSearches() {
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        this.pool.shutdownNow();
+    }
+
+    @Override
+    public Move findBestMove() {
+        // Both players share the moves left, this player makes about half
+        this.timer.startMove(this.board.getPossibleMoves() / 2 + 1);
+        Move bestMove = this.findBestMove(this.timer);
+        this.timer.stopMove();
+
+        return bestMove;
+    }
+
+    /* Grow the tree for as long as the move's time budget allows.
+     *
+     * Return the root's most visited move
+     */
+    @Override
+    public Move findBestMove(SearchTimer timer) {
+        int threads = this.boards.length;
+
+        this.moveTimer = timer;
+
+        final Node[] roots = new Node[threads];
+        for (int i = 0; i < threads; i++) {
+            this.boards[i].copyFrom(this.board);
+            if (i == 0 || this.parallelMode == SearchConfig.MCTS_ROOT) {
+                roots[i] = new Node(BoardLayout.NO_EDGE, EMPTY);
+                roots[i].expand(this.boards[i]);
+            } else {
+                roots[i] = roots[0];
+            }
+        }
+
+        if (roots[0].children.length > 1) {
+            ArrayList<Future<Long>> running = new ArrayList<Future<Long>>();
+            for (int i = 1; i < threads; i++) {
+                final int thread = i;
+                running.add(this.pool.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        return MctsSearch.this.grow(roots[thread], thread);
+                    }
+                }));
+            }
+            this.playouts += this.grow(roots[0], 0);
+            this.playouts += this.waitFor(running);
+        }
+
+        // Sum the visits of every move over the trees, each expanded from
+        // the same position in the same order
+        Node[] children = roots[0].children;
+        int best = 0;
+        long bestVisits = -1;
+        for (int c = 0; c < children.length; c++) {
+            long visits = 0;
+            for (int i = 0; i < threads; i++) {
+                if (i == 0 || roots[i] != roots[0]) {
+                    visits += roots[i].children[c].visits;
+                }
+            }
+            if (visits > bestVisits) {
+                bestVisits = visits;
+                best = c;
+            }
+        }
+
+        Point point = this.board.getLayout().getEdgePoint(
+            children[best].edge);
+        Move m = new Move();
+        m.P = this.player;
+        m.Row = point.getX();
+        m.Col = point.getY();
+        return m;
+    }
+
+    /* Run iterations from the root on the thread's board until the time is
+     * up.
+     *
+     * Return the number of playouts made
+     */
+    private long grow(Node root, int thread) {
+        BitBoard board = this.boards[thread];
+        PlayoutKernel kernel = this.kernels[thread];
+        SplittableRandom random = this.randoms[thread];
+        int rootPly = board.getPly();
+        Node[] path = new Node[board.getPossibleMoves() + 1];
+        long numPlayouts = 0;
+
+        // The root is copied once, every playout replays its path from it
+        kernel.setPosition(board);
+        while (!this.moveTimer.isTimeUp()) {
+            int length = this.select(root, board, path);
+            board.unmakeMoves(rootPly);
+
+            kernel.restart();
+            for (int i = 1; i < length; i++) {
+                kernel.play(path[i].edge);
+            }
+            kernel.playOut(random);
+
+            this.update(path, length, kernel.getPlayerCells(BLUE),
+                kernel.getPlayerCells(RED));
+            numPlayouts++;
+        }
+        return numPlayouts;
+    }
+
+    /* Walk down from the root by UCT, making the moves on the board, until
+     * a child not visited yet or the end of the game, expanding the nodes
+     * walked through on the way.
+     *
+     * Return the number of nodes on the path, root included
+     */
+    private int select(Node root, BitBoard board, Node[] path) {
+        Node node = root;
+        int length = 0;
+
+        path[length++] = root;
+        while (true) {
+            Node child;
+            boolean visited;
+
+            synchronized (node) {
+                if (node.children == null) {
+                    node.expand(board);
+                }
+                if (node.children.length == 0) {
+                    return length;
+                }
+
+                child = this.selectChild(node);
+                visited = child.visits > 0;
+                child.virtualLosses += this.virtualLoss;
+            }
+
+            board.makeMove(child.edge, child.mover);
+            path[length++] = child;
+            node = child;
+            if (!visited) {
+                return length;
+            }
+        }
+    }
+
+    /* Return the child of the node with the highest UCT value, or the first
+     * not visited yet. Called holding the node's lock, which guards the
+     * counts of its children
+     */
+    private Node selectChild(Node node) {
+        long parentVisits = 0;
+
+        for (Node child: node.children) {
+            long n = child.visits + child.virtualLosses;
+            if (n == 0) {
+                return child;
+            }
+            parentVisits += n;
+        }
+
+        double logVisits = Math.log(parentVisits);
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Node child: node.children) {
+            // Virtual losses count as visits that lost
+            double n = child.visits + child.virtualLosses;
+            double value = child.wins / n +
+                this.exploration * Math.sqrt(logVisits / n);
+
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /* Count the result of a playout at every node of its path, taking back
+     * the virtual losses added on the way down
+     */
+    private void update(Node[] path, int length, int blueCells,
+        int redCells) {
+        for (int i = 1; i < length; i++) {
+            Node node = path[i];
+            double result = result(node.mover, blueCells, redCells);
+
+            synchronized (path[i - 1]) {
+                node.visits++;
+                node.virtualLosses -= this.virtualLoss;
+                node.wins += result;
+            }
+        }
+    }
+
+    /* Return 1 if the player won the game, 0.5 for a draw and 0 if it lost
+     */
+    private static double result(int player, int blueCells, int redCells) {
+        int own = (player == BLUE) ? blueCells : redCells;
+        int other = (player == BLUE) ? redCells : blueCells;
+
+        if (own == other) {
+            return 0.5;
+        }
+        return (own > other) ? 1 : 0;
+    }
+
+    /* Wait for the other threads to run out of time.
+     *
+     * Return the number of playouts they made
+     */
+    private long waitFor(ArrayList<Future<Long>> running) {
+        boolean interrupted = false;
+        long numPlayouts = 0;
+
+        for (Future<Long> worker: running) {
+            while (true) {
+                try {
+                    numPlayouts += worker.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Search thread failed",
+                        e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return numPlayouts;
+    }
+
+    /*
+     *  Node class
+     *  A move of the tree, by the player who made it. The children are
+     *  guarded by the node's own lock and the counts by its parent's
+     */
+    private static class Node {
+
+        private int edge;
+        private int mover;
+
+        private Node[] children;
+
+        private long visits;
+        private long virtualLosses;
+
+        // Results of the playouts through the node to its mover
+        private double wins;
+
+        private Node(int edge, int mover) {
+            this.edge = edge;
+            this.mover = mover;
+        }
+
+        /* Add a child for every move worth trying on the board: the capture
+         * if there is one, otherwise every safe edge, otherwise every edge
+         * left
+         */
+        private void expand(BitBoard board) {
+            int player = board.getSideToMove();
+            int numEdges = board.getLayout().getNumEdges();
+            int[] edges = new int[numEdges];
+            int numChildren = 0;
+
+            int capturingEdge = board.getCapturingEdge();
+            if (capturingEdge != BoardLayout.NO_EDGE) {
+                edges[numChildren++] = capturingEdge;
+            } else if (board.countSafeEdges() > 0) {
+                numChildren = board.generateSafeEdges(edges);
+            } else {
+                for (int e = 0; e < numEdges; e++) {
+                    if (!board.isEdgeCaptured(e)) {
+                        edges[numChildren++] = e;
+                    }
+                }
+            }
+
+            Node[] children = new Node[numChildren];
+            for (int i = 0; i < numChildren; i++) {
+                children[i] = new Node(edges[i], player);
+            }
+            this.children = children;
+        }
+
+    }
+
+}
@@ -22,40 +22,41 @@ import java.util.Map;
  */
 public class MiniMaxPlayer implements Player, Piece {
 
-    private Board board;
+    private BitBoard board;
     private int boardDimension;
     private int player;
-    private char cellIdentity;
     private char edgeIdentity;
     private int oppPlayer;
-    private char oppCellIdentity;
-    private char oppEdgeIdentity;
     private HashMap<Point, ArrayList<Point>> edgeAssociatedCells;
     private Map<Integer, ArrayList<Point>> numCellsToPointsMade = null;
 
+    // Best edge found at the root by the last minimax search
+    private int rootBestEdge;
+
+    // Safe edges of the board at every ply of the search
+    private int[][] moveBuffers;
+
+    // Solves the endgame before it is rolled out
+    private EndgameSolver endgameSolver;
+
     @Override
     public int init(int n, int p) {
         if (p != BLUE && p != RED) {
             return INVALID;
         }
         this.boardDimension = n;
-        this.board = new Board(this.boardDimension);
+        this.board = new BitBoard(this.boardDimension);
         this.edgeAssociatedCells = this.board.generateEdgeToCellsPoints();
 
         this.player = p;
-        if (p == BLUE) {
-            this.cellIdentity = Board.BLUE_CELL;
-            this.edgeIdentity = Board.BLUE_EDGE;
-            this.oppPlayer = RED;
-            this.oppCellIdentity = Board.RED_CELL;
-            this.oppEdgeIdentity = Board.RED_EDGE;
-        } else {
-            this.cellIdentity = Board.RED_CELL;
-            this.edgeIdentity = Board.RED_EDGE;
-            this.oppPlayer = BLUE;
-            this.oppCellIdentity = Board.BLUE_CELL;
-            this.oppEdgeIdentity = Board.BLUE_EDGE;
-        }
+        this.edgeIdentity = (p == BLUE) ? Board.BLUE_EDGE : Board.RED_EDGE;
+        this.oppPlayer = (p == BLUE) ? RED : BLUE;
+
+        int numEdges = this.board.getLayout().getNumEdges();
+        this.moveBuffers = new int[numEdges + 1][numEdges];
+        this.endgameSolver = new EndgameSolver(
+            this.board.getLayout().getNumCells(), EndgameCache.getShared(),
+            EndgameTablebase.getShared());
 
         return 0;
     }
@@ -90,21 +91,18 @@ public class MiniMaxPlayer implements Player, Piece {
             m.Col = bestMovePoint.getY();
         } else if (numSafeEdges <= THRESHOLD) {
             // Start invoking minimax when below threshold
-            char[][] boardState = this.board.getBoardIn2DArray();
-
-            // Get best move from alpha-beta algorithm
-            HashMap<Integer, Move> myBestMove = minimax(boardState, this.board.getPossibleMoves(), true);
+            minimax(0, this.board.getPossibleMoves(), true);
 
             // Return Move generated by minimax algorithm
-            m = myBestMove.get(myBestMove.keySet().toArray()[0]);
+            m = this.newMove(this.rootBestEdge);
         } else {
             // Randomly choose edge when there still are safe edges and possible moves are above threshold
-            ArrayList<Edge> edgesToRandomFrom = this.board.getSafeEdges();
+            ArrayList<Point> edgesToRandomFrom = this.board.getSafeEdges();
             int numEdges = edgesToRandomFrom.size();
 
             Random random = new Random();
             int indexEdgeChosen = random.nextInt(numEdges);
-            Point chosenPoint = edgesToRandomFrom.get(indexEdgeChosen).getPoint();
+            Point chosenPoint = edgesToRandomFrom.get(indexEdgeChosen);
 
             m.P = this.player;
             m.Row = chosenPoint.getX();
@@ -214,59 +212,55 @@ public class MiniMaxPlayer implements Player, Piece {
     /* Return Point in board state that would result in capturing of cell by one move
     */
     private ArrayList<Point> getAssociatedCellPoints(Point edgePoint) {
-        for (Point p: this.edgeAssociatedCells.keySet()) {
-            if (p.equals(edgePoint)) {
-                return this.edgeAssociatedCells.get(p);
-            }
-        }
-
-        return null;
+        return this.edgeAssociatedCells.get(edgePoint);
     }
 
     /* Recursive minimax at level of depth for either maximizing or minimizing player.
-     * Return HashMap<Int, Move> of {bestScore -> bestMove}
+     * Moves are made and taken back on the board in place, ply is the number of
+     * moves made since the root.
+     * Return the best score, the best edge of the root is kept in rootBestEdge
      *  */
-    private HashMap<Integer, Move> minimax(char[][] boardState, int possibleMoves, boolean maxPlayer) {
+    private int minimax(int ply, int possibleMoves, boolean maxPlayer) {
         int bestValue;
         int player = maxPlayer ? this.player : this.oppPlayer;
-        Move bestMove = null;
+        int bestEdge = BoardLayout.NO_EDGE;
 
         // If game state has reaches the point where all cells only has at most 2 uncaptured cells
-        ArrayList<Move> safeMoves = generateMoves(boardState, player);
+        int[] safeEdges = this.moveBuffers[ply];
+        int numSafe = this.board.generateSafeEdges(safeEdges);
 
-        if (safeMoves.size() == 0) {
-            bestValue = predictWinningBoardState(boardState, possibleMoves, maxPlayer);
+        if (numSafe == 0) {
+            bestValue = predictWinningBoardState(maxPlayer);
         }
         else {
             bestValue = maxPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
-            // For each valid move, generate child node and recurse minimax
-            for (Move move: safeMoves) {
-                // Try this move on the player
-                char[][] childBoard = generateChildBoardState(move, boardState);
-                HashMap<Integer, Move> result;
+            // For each valid move, make the move, recurse minimax and take it back.
+            // Safe moves never capture a cell, so the turn always passes
+            for (int i = 0; i < numSafe; i++) {
+                int edge = safeEdges[i];
+                this.board.makeMove(edge, player);
+                int resultValue = minimax(ply + 1, possibleMoves-1, !maxPlayer);
+                this.board.unmakeMove();
 
                 if (maxPlayer) {
-                    result = minimax(childBoard, possibleMoves-1, !maxPlayer);
-                    int resultValue = (int) result.keySet().toArray()[0];
                     if (resultValue > bestValue) {
                         bestValue = resultValue;
-                        bestMove = move;
+                        bestEdge = edge;
                     }
                 }
                 else {
-                    result = minimax(childBoard, possibleMoves-1, maxPlayer);
-                    int resultValue = (int) result.keySet().toArray()[0];
                     if (resultValue < bestValue) {
                         bestValue = resultValue;
-                        bestMove = move;
+                        bestEdge = edge;
                     }
                 }
             }
         }
 
-        HashMap<Integer, Move> bestStrategy = new HashMap<Integer, Move>();
-        bestStrategy.put(bestValue, bestMove);
-        return bestStrategy;
+        if (ply == 0) {
+            this.rootBestEdge = bestEdge;
+        }
+        return bestValue;
     }
 
     /* Get the number of edges where capturing that edge would
@@ -315,175 +309,67 @@ public class MiniMaxPlayer implements Player, Piece {
         return null;
     }
 
-    /* Based on the number of possible moves, predict the winning board state
-     * assuming both player(s) are rational and want to win
+    /* Predict the winning board state assuming both player(s) are rational and
+     * want to win: solve the endgame when the endgame solver can, otherwise
+     * capture every cell possible, otherwise give the opponent the least
+     * cells. The board is played out in place and restored before returning
     */
-    private int predictWinningBoardState(char[][] boardState, int possibleMoves, boolean maxPlayer) {
-        Map<Integer, ArrayList<Point>> numCellsToPointsMade = this.generateNumCellsToPointsMade(boardState);
-
-        while(this.getNumUncapturedEdges(boardState) > 0) {
-            Point bestPoint = getPointThatCaptureLowestNumCells(boardState, numCellsToPointsMade);
-            ArrayList<Point> affectedCellPoints = getAssociatedCellPoints(bestPoint);
-            if (maxPlayer) {
-                boardState[bestPoint.getX()][bestPoint.getY()] = this.edgeIdentity;
-                boardState = captureCellsRecursive(boardState, affectedCellPoints, !maxPlayer);
-            }
-            else {
-                boardState[bestPoint.getX()][bestPoint.getY()] = this.oppEdgeIdentity;
-                boardState = captureCellsRecursive(boardState, affectedCellPoints, maxPlayer);
-            }
-            possibleMoves--;
-        }
-        return evaluateBoardState(boardState);
-    }
-
-    private char[][] captureCellsRecursive(char[][] boardState, ArrayList<Point> affectedCellPoints, boolean maxPlayer) {
-        if (affectedCellPoints != null) {
-            // Loop through points of associated cell, and get all the edges that belong to the cell
-            for (Point cellPoint: affectedCellPoints) {
-                ArrayList<Point> allAssociatedEdgePoints = Cell.getPointOfCellEdges(cellPoint);
-                Point nextEdgePoint = null;
-                boolean firstEdgeUncaptured = true;
-
-                for (Point edgePoint: allAssociatedEdgePoints) {
-                    if (boardState[edgePoint.getX()][edgePoint.getY()] == Board.EMPTY_EDGE) {
-                        if (firstEdgeUncaptured) {
-                            firstEdgeUncaptured = false;
-                            nextEdgePoint = edgePoint;
-                        } else {
-                            nextEdgePoint = null;
-                            break;
-                        }
-                    }
-                }
-
-                if (nextEdgePoint != null) {
-                    if (maxPlayer) {
-                        boardState[nextEdgePoint.getX()][nextEdgePoint.getY()] = this.edgeIdentity;
-                    } else {
-                        boardState[nextEdgePoint.getX()][nextEdgePoint.getY()] = this.oppEdgeIdentity;
-                    }
-
-                    // There is either none or one nextAffectedCell
-                    Point nextAffectedCell = null;
-                    for (Point nextCellPoint: this.getAssociatedCellPoints(nextEdgePoint)) {
-                        if (!nextCellPoint.equals(cellPoint)) {
-                            nextAffectedCell = nextCellPoint;
-                            break;
-                        }
-                    }
+    private int predictWinningBoardState(boolean maxPlayer) {
+        int startPly = this.board.getPly();
+        int player = maxPlayer ? this.player : this.oppPlayer;
 
-                    ArrayList<Point> nextAffectedCellPoints = null;
-                    if (nextAffectedCell != null) {
-                    	nextAffectedCellPoints = new ArrayList<Point>();
-                    	nextAffectedCellPoints.add(nextAffectedCell);
-                    }
-                    boardState = captureCellsRecursive(boardState, nextAffectedCellPoints, maxPlayer);
-                }
-            }
+        int solved = this.endgameSolver.solve(this.board);
+        if (solved != EndgameSolver.UNKNOWN) {
+            // The player to move gets half of the cells left and the
+            // difference it wins by
+            int cellsLeft = this.board.getLayout().getNumCells() -
+                this.board.getPlayerCells(RED) -
+                this.board.getPlayerCells(BLUE);
+            int moverCells = (cellsLeft + solved) / 2;
+            int cellsWon = (player == this.player) ? moverCells :
+                cellsLeft - moverCells;
+            int numToWin = Board.numberOfCells(this.boardDimension)/2 + 1;
+
+            return this.board.getPlayerCells(this.player) + cellsWon -
+                numToWin;
         }
 
-        return boardState;
-    }
-
-    private int getNumUncapturedEdges(char[][] boardState) {
-        int numUncapturedEdges = 0;
-        int boardSize = boardState.length;
-        for (int row = 0; row < boardSize; row++) {
-            for (int col = 0; col < boardSize; col++) {
-                if (boardState[row][col] == Board.EMPTY_EDGE) {
-                    numUncapturedEdges++;
-                }
+        while (this.board.getPossibleMoves() > 0) {
+            int edge = this.board.getCapturingEdge();
+            if (edge == BoardLayout.NO_EDGE) {
+                edge = this.board.getCheapestEdge(player);
             }
-        }
-
-        return numUncapturedEdges;
-    }
-
-    /* Evaluate a boardState and return an integer that represents
-     * the utility of this player
-     * */
-    private int evaluateBoardState(char[][] boardState) {
-        int numCapturedCells = 0;
-        int boardSize = boardState.length;
-        int boardDimension = (boardSize + 1)/4;
 
-        int numToWin = Board.numberOfCells(boardDimension)/2 + 1;
-
-        for (int row = 0; row < boardSize; row++) {
-            for (int col = 0; col < boardSize; col++) {
-                if (boardState[row][col] == this.cellIdentity) {
-                    numCapturedCells++;
-                }
+            // The turn only passes when no cell is captured
+            if (this.board.makeMove(edge, player) == 0) {
+                player = BitBoard.opponentOf(player);
             }
         }
 
-        return numCapturedCells - numToWin;
-    }
-
-    /* Generate a list of all legal moves of existing boardState
-     * */
-    private ArrayList<Move> generateMoves(char[][] boardState, int player) {
-        ArrayList<Move> allSafeMoves = new ArrayList<Move>();
-        ArrayList<Point> safeEdges = this.get2DSafeEdges(boardState);
-
-        for (Point edgePoint: safeEdges) {
-            Move safeMove = new Move();
-            safeMove.P = player;
-            safeMove.Row = edgePoint.getX();
-            safeMove.Col = edgePoint.getY();
-            allSafeMoves.add(safeMove);
-        }
-        return allSafeMoves;
+        int value = evaluateBoardState();
+        this.board.unmakeMoves(startPly);
+        return value;
     }
 
-    /* Generate board child node based on a new move applied by player
+    /* Evaluate the board and return an integer that represents
+     * the utility of this player
      * */
-    private char[][] generateChildBoardState(Move move, char[][] boardState) {
-        // Copy board state over and make a move
-        char[][] newBoardState = this.copyBoard(boardState);
+    private int evaluateBoardState() {
+        int numToWin = Board.numberOfCells(this.boardDimension)/2 + 1;
 
-        // If maxPlayer, means it is this player's turn, so move was made by opponent
-        newBoardState[move.Row][move.Col] = move.P == this.player ? this.edgeIdentity : this.oppEdgeIdentity;
-
-        return newBoardState;
+        return this.board.getPlayerCells(this.player) - numToWin;
     }
 
-    /* Check if move is a capturing cell move
+    /* Return the move of this player taking the edge
      * */
-    Point checkIfCaptureCell(Move move, char[][] boardState) {
-        char[][] newBoardState = this.copyBoard(boardState);
-        newBoardState[move.Row][move.Col] = move.P == this.player ? this.edgeIdentity : this.oppEdgeIdentity;
-
-        // Get the cell point associated with the captured edge
-        ArrayList<Point> cellPointsOfEdge = new ArrayList<Point>();
-        for (Point edgePoint : edgeAssociatedCells.keySet()) {
-            if (edgePoint.getX() == move.Row && edgePoint.getY() == move.Col) {
-                cellPointsOfEdge = edgeAssociatedCells.get(edgePoint);
-            }
-        }
-
-        // Loop through the associated cell, and get all the edges that belong to the cell
-        for (Point cellPoint: cellPointsOfEdge) {
-            ArrayList<Point> allAssociatedEdgePoints = Cell.getPointOfCellEdges(cellPoint);
-            int numEdgeCaptured = 0;
-
-            // Increment counter if edges are captured
-            for (Point edgePoint: allAssociatedEdgePoints) {
-                if (newBoardState[edgePoint.getX()][edgePoint.getY()] != Board.EMPTY_EDGE) {
-                    numEdgeCaptured++;
-                }
-            }
-
-            // If fully captured and cell point is not labeled, this suggests that
-            // the move made has captured the cell
-            char cellValue = newBoardState[cellPoint.getX()][cellPoint.getY()];
-            if (numEdgeCaptured == Board.HEXAGON && cellValue == Board.NA_POINT) {
-                // If maxPlayer, means it is this player's turn, so move was made by opponent
-                return new Point(cellPoint.getX(), cellPoint.getY());
-            }
-        }
-        return null;
+    private Move newMove(int edge) {
+        Point edgePoint = this.board.getLayout().getEdgePoint(edge);
+        Move move = new Move();
+
+        move.P = this.player;
+        move.Row = edgePoint.getX();
+        move.Col = edgePoint.getY();
+        return move;
     }
 
     private char[][] copyBoard(char[][] boardState) {
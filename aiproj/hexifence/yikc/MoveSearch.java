@@ -0,0 +1,56 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import aiproj.hexifence.*;
+
+/*
+ *  MoveSearch interface
+ *  A search for the best safe move of a player's board, made by the player
+ *  while there are safe edges left. SearchConfig.newSearch picks the one
+ *  that is set
+ */
+public interface MoveSearch {
+
+    /* Search the board within the move's time budget and return the best
+     * safe move found
+     */
+    public Move findBestMove();
+
+    /* Search the board until the given timer is up, and return the best
+     * safe move found. The caller starts and stops the timer's move, so a
+     * player can share one timer between everything that plays its moves
+     */
+    public Move findBestMove(SearchTimer timer);
+
+    /* Return the number of nodes searched so far, by every thread
+     */
+    public long getNodes();
+
+    /* Return the number of nodes cut off so far, by every thread
+     */
+    public long getCutoffs();
+
+    /* Return the number of nodes cut off by the first move searched there
+     * so far, by every thread
+     */
+    public long getFirstMoveCutoffs();
+
+    /* Return the number of iterations searched with an aspiration window
+     * so far, by every thread
+     */
+    public long getAspirationSearches();
+
+    /* Return the number of times an iteration was searched again as its
+     * score fell outside the aspiration window, by every thread
+     */
+    public long getReSearches();
+
+    /* Stop the threads of the search, once the player is done with it
+     */
+    public void close();
+
+}
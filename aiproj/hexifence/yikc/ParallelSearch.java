@@ -0,0 +1,360 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import aiproj.hexifence.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ *  ParallelSearch class
+ *  Root-split alpha-beta search on a ForkJoinPool, run by iterative
+ *  deepening within a time budget. Each iteration searches the first root
+ *  move alone, young brothers wait style, to get a good alpha, then splits
+ *  the other root moves between the threads. After the first iteration the
+ *  first move is searched within an aspiration window around the last
+ *  iteration's score, widened until its score falls inside.
+ *
+ *  Every thread searches its own copy of the board with its own Search. The
+ *  threads share one transposition table, and the best root score through
+ *  an atomic so a cut-off found by one thread narrows the windows of all of
+ *  them. The threads are a pool of the search's own, so they never wait
+ *  behind the threads of another player's search
+ */
+public class ParallelSearch implements Piece, MoveSearch {
+
+    private static final int ALPHA = Integer.MIN_VALUE;
+    private static final int BETA = Integer.MAX_VALUE;
+
+    // Aspiration windows this wide are searched as a full window
+    private static final int FULL_WIDTH = 1 << 20;
+
+    private BitBoard board;
+    private BoardLayout layout;
+
+    private ForkJoinPool pool;
+    private TranspositionTable transpositionTable;
+    private SearchTimer timer;
+    private AtomicInteger sharedAlpha;
+
+    // Searches the first root move on the player's board
+    private Search mainSearch;
+
+    // Searches of the other root moves, each on its own copy of the board
+    // and run by a task of its own
+    private Search[] workers;
+
+    private int maxDepth;
+
+    // Score of the root by the last completed iteration of this move, the
+    // centre of the eldest brother's aspiration window
+    private int lastScore;
+    private boolean hasLastScore;
+
+    // Aspiration window settings, and the number of eldest brothers
+    // searched within a window and searched again after falling out of it
+    private int aspirationWidth;
+    private int aspirationGrowth;
+    private long aspirationSearches;
+    private long reSearches;
+
+    public ParallelSearch(BitBoard board, int player, SearchConfig config) {
+        int threads = Math.max(1, config.getThreads());
+
+        this.board = board;
+        this.layout = board.getLayout();
+
+        this.pool = new ForkJoinPool(threads);
+        this.transpositionTable = new TranspositionTable(
+            config.getTtEntries(), TranspositionTable.TWO_TIER);
+        this.timer = new SearchTimer(config.getMoveTimeMillis(),
+            config.getGameTimeMillis());
+        this.sharedAlpha = new AtomicInteger(ALPHA);
+
+        this.mainSearch = new Search(board, player, config,
+            this.transpositionTable);
+        this.mainSearch.setSharedAlpha(this.sharedAlpha);
+
+        this.workers = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            this.workers[i] = new Search(new BitBoard(board), player, config,
+                this.transpositionTable);
+            this.workers[i].setSharedAlpha(this.sharedAlpha);
+        }
+        this.maxDepth = config.getMaxDepth();
+        this.aspirationWidth = config.getAspirationWidth();
+        this.aspirationGrowth = config.getAspirationGrowth();
+    }
+
+    @Override
+    public void close() {
+        this.pool.shutdownNow();
+    }
+
+    @Override
+    public long getNodes() {
+        long nodes = this.mainSearch.getNodes();
+
+        for (Search worker: this.workers) {
+            nodes += worker.getNodes();
+        }
+        return nodes;
+    }
+
+    @Override
+    public long getCutoffs() {
+        long cutoffs = this.mainSearch.getCutoffs();
+
+        for (Search worker: this.workers) {
+            cutoffs += worker.getCutoffs();
+        }
+        return cutoffs;
+    }
+
+    @Override
+    public long getFirstMoveCutoffs() {
+        long cutoffs = this.mainSearch.getFirstMoveCutoffs();
+
+        for (Search worker: this.workers) {
+            cutoffs += worker.getFirstMoveCutoffs();
+        }
+        return cutoffs;
+    }
+
+    @Override
+    public long getAspirationSearches() {
+        long searches = this.aspirationSearches +
+            this.mainSearch.getAspirationSearches();
+
+        for (Search worker: this.workers) {
+            searches += worker.getAspirationSearches();
+        }
+        return searches;
+    }
+
+    @Override
+    public long getReSearches() {
+        long reSearches = this.reSearches + this.mainSearch.getReSearches();
+
+        for (Search worker: this.workers) {
+            reSearches += worker.getReSearches();
+        }
+        return reSearches;
+    }
+
+    @Override
+    public Move findBestMove() {
+        // Both players share the moves left, this player makes about half
+        this.timer.startMove(this.board.getPossibleMoves() / 2 + 1);
+        Move bestMove = this.findBestMove(this.timer);
+        this.timer.stopMove();
+
+        return bestMove;
+    }
+
+    /* Iterative deepening over root-split searches, until the search
+     * reaches the end of the safe moves or the time for the move runs out.
+     *
+     * Return the best move of the last completed iteration
+     */
+    @Override
+    public Move findBestMove(SearchTimer timer) {
+        int lastDepth = Math.min(this.board.countSafeEdges(), this.maxDepth);
+        int bestEdge = TranspositionTable.NO_MOVE;
+        Move bestMove = null;
+
+        this.hasLastScore = false;
+        this.transpositionTable.newSearch();
+        this.mainSearch.beginMove(timer);
+        for (Search worker: this.workers) {
+            worker.getBoard().copyFrom(this.board);
+            worker.beginMove(timer);
+        }
+
+        for (int depth = 1; depth <= lastDepth; depth++) {
+            Move iterationBest = this.searchRoot(depth, bestEdge);
+            if (iterationBest == null) {
+                break;
+            }
+
+            bestMove = iterationBest;
+            bestEdge = this.layout.getEdgeIndex(bestMove.Row, bestMove.Col);
+
+            if (timer.isPastHalfTime()) {
+                break;
+            }
+        }
+
+        if (bestMove == null) {
+            // Not even the first iteration finished, take any safe move
+            bestMove = this.mainSearch.orderRootMoves(bestEdge).get(0);
+        }
+        return bestMove;
+    }
+
+    /* Search every root move to depth plies, the given edge first.
+     *
+     * Return the best root move, or null if time ran out
+     */
+    private Move searchRoot(int depth, int firstEdge) {
+        final ArrayList<Move> moves = this.mainSearch.orderRootMoves(
+            firstEdge);
+        final int moveDepth = depth;
+
+        // The eldest brother is searched alone for a score to beat
+        this.sharedAlpha.set(ALPHA);
+        Move bestMove = moves.get(0);
+        int bestValue = this.searchEldestBrother(bestMove, depth);
+        if (this.mainSearch.isAborted()) {
+            return null;
+        }
+        this.sharedAlpha.set(bestValue);
+
+        // Every worker has a task of its own, which takes the next root move
+        // left until there are none, so no task waits for a worker
+        final AtomicInteger nextMove = new AtomicInteger(1);
+        int numTasks = Math.min(this.workers.length, moves.size() - 1);
+        ArrayList<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>();
+        for (int i = 0; i < numTasks; i++) {
+            final Search worker = this.workers[i];
+
+            tasks.add(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    return searchSplitMoves(worker, moves, nextMove,
+                        moveDepth);
+                }
+            });
+        }
+
+        // Tasks only return scores that beat every score returned before
+        boolean aborted = false;
+        try {
+            ArrayList<Future<int[]>> results =
+                new ArrayList<Future<int[]>>(this.pool.invokeAll(tasks));
+
+            for (int i = 0; i < results.size(); i++) {
+                int[] best = results.get(i).get();
+
+                if (best == null) {
+                    aborted = true;
+                } else if (best[0] > bestValue) {
+                    bestValue = best[0];
+                    bestMove = moves.get(best[1]);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            aborted = true;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search thread failed",
+                e.getCause());
+        }
+
+        if (aborted) {
+            return null;
+        }
+
+        this.lastScore = bestValue;
+        this.hasLastScore = true;
+        return bestMove;
+    }
+
+    /* Search the eldest brother to depth plies, after the first iteration
+     * within a window around the last iteration's score. A score outside
+     * the window only bounds the true score, so the side it fell out of is
+     * widened and the move searched again until the score falls inside.
+     *
+     * Return the score of the move
+     */
+    private int searchEldestBrother(Move move, int depth) {
+        if (this.aspirationWidth <= 0 || !this.hasLastScore) {
+            return this.mainSearch.searchRootMove(move, depth, ALPHA);
+        }
+
+        int width = this.aspirationWidth;
+        int alpha = this.lastScore - width;
+        int beta = this.lastScore + width;
+
+        this.aspirationSearches++;
+        while (true) {
+            int score = this.mainSearch.searchRootMove(move, depth, alpha,
+                beta);
+
+            if (this.mainSearch.isAborted() ||
+                (score > alpha && score < beta) ||
+                (score <= alpha && alpha == ALPHA) ||
+                (score >= beta && beta == BETA)) {
+                return score;
+            }
+
+            this.reSearches++;
+            width = (this.aspirationGrowth > 1) ?
+                Math.min(width * this.aspirationGrowth, FULL_WIDTH) :
+                FULL_WIDTH;
+            if (score <= alpha) {
+                alpha = (width == FULL_WIDTH) ? ALPHA : score - width;
+            } else {
+                beta = (width == FULL_WIDTH) ? BETA : score + width;
+            }
+        }
+    }
+
+    /* Search root moves with the worker, taking the next one left until
+     * there are none.
+     *
+     * Return the best score the worker raised the shared alpha to and the
+     * index of its move, or null if time ran out
+     */
+    private int[] searchSplitMoves(Search worker, ArrayList<Move> moves,
+        AtomicInteger nextMove, int depth) {
+        int[] best = {ALPHA, 0};
+        int i;
+
+        while ((i = nextMove.getAndIncrement()) < moves.size()) {
+            Integer value = this.searchSplitMove(worker, moves.get(i), depth);
+            if (value == null) {
+                return null;
+            }
+            if (value > best[0]) {
+                best[0] = value;
+                best[1] = i;
+            }
+        }
+        return best;
+    }
+
+    /* Search a root move with the worker.
+     *
+     * Return its score if it is the best so far, ALPHA if it is not, or null
+     * if time ran out
+     */
+    private Integer searchSplitMove(Search worker, Move move, int depth) {
+        int alpha = this.sharedAlpha.get();
+        int value = worker.searchRootMove(move, depth, alpha);
+        if (worker.isAborted()) {
+            return null;
+        }
+
+        // Only a score above every alpha used in the search is exact.
+        // Raise the shared alpha to it, any other score is no better than a
+        // move already searched
+        int current = this.sharedAlpha.get();
+        while (value > current) {
+            if (this.sharedAlpha.compareAndSet(current, value)) {
+                return value;
+            }
+            current = this.sharedAlpha.get();
+        }
+        return ALPHA;
+    }
+
+}
@@ -0,0 +1,126 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import aiproj.hexifence.*;
+
+import java.util.SplittableRandom;
+
+/*
+ *  PlayoutBenchmark class
+ *  Times playouts from the empty board of every dimension up to the given
+ *  one on one thread, by PlayoutKernel and by the same policy played move
+ *  by move on a BitBoard, and prints the playouts per second of each and
+ *  the mean number of cells the first player ends with, which should be
+ *  about the same for both.
+ *
+ *  Usage: java aiproj.hexifence.yikc.PlayoutBenchmark
+ *             [max dimension] [ms per dimension]
+ *
+ *  Each is run for as long again first so the JIT has compiled it, from a
+ *  fixed seed
+ */
+public class PlayoutBenchmark implements Piece {
+
+    private static final long SEED = 2016;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    // Playouts made between reads of the clock
+    private static final int BATCH = 256;
+
+    public static void main(String[] args) {
+        int maxDimension = intArg(args, 0, 3);
+        int millis = intArg(args, 1, 2000);
+
+        System.out.println(String.format("%-10s %6s %14s %14s %10s %10s",
+            "dimension", "edges", "kernel/s", "board/s", "kernel", "board"));
+        for (int dimension = 2; dimension <= maxDimension; dimension++) {
+            BitBoard board = new BitBoard(dimension);
+
+            timeKernel(board, millis);
+            double[] kernel = timeKernel(board, millis);
+            timeBoard(board, millis);
+            double[] onBoard = timeBoard(board, millis);
+
+            System.out.println(String.format(
+                "%-10d %6d %14.0f %14.0f %10.2f %10.2f", dimension,
+                board.getLayout().getNumEdges(), kernel[0], onBoard[0],
+                kernel[1], onBoard[1]));
+        }
+    }
+
+    /* Play out the board by PlayoutKernel for the given time.
+     *
+     * Return the playouts per second and the mean cells of BLUE
+     */
+    private static double[] timeKernel(BitBoard board, int millis) {
+        PlayoutKernel kernel = new PlayoutKernel(board.getLayout());
+        SplittableRandom random = new SplittableRandom(SEED);
+        long deadline = System.nanoTime() + millis * NANOS_PER_MILLI;
+        long start = System.nanoTime();
+        long numPlayouts = 0;
+        long blueCells = 0;
+
+        kernel.setPosition(board);
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < BATCH; i++) {
+                kernel.restart();
+                kernel.playOut(random);
+                blueCells += kernel.getPlayerCells(BLUE);
+            }
+            numPlayouts += BATCH;
+        }
+        return rates(numPlayouts, blueCells, System.nanoTime() - start);
+    }
+
+    /* Play out the board move by move on a copy of it for the given time.
+     *
+     * Return the playouts per second and the mean cells of BLUE
+     */
+    private static double[] timeBoard(BitBoard board, int millis) {
+        BitBoard copy = new BitBoard(board);
+        int[] edges = new int[board.getLayout().getNumEdges()];
+        SplittableRandom random = new SplittableRandom(SEED);
+        int startPly = copy.getPly();
+        long deadline = System.nanoTime() + millis * NANOS_PER_MILLI;
+        long start = System.nanoTime();
+        long numPlayouts = 0;
+        long blueCells = 0;
+
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < BATCH; i++) {
+                while (copy.getPossibleMoves() > 0) {
+                    int player = copy.getSideToMove();
+                    int edge = copy.getCapturingEdge();
+
+                    if (edge == BoardLayout.NO_EDGE) {
+                        int numSafe = copy.generateSafeEdges(edges);
+                        edge = (numSafe > 0) ?
+                            edges[random.nextInt(numSafe)] :
+                            copy.getCheapestEdge(player);
+                    }
+                    copy.makeMove(edge, player);
+                }
+                blueCells += copy.getPlayerCells(BLUE);
+                copy.unmakeMoves(startPly);
+            }
+            numPlayouts += BATCH;
+        }
+        return rates(numPlayouts, blueCells, System.nanoTime() - start);
+    }
+
+    private static double[] rates(long numPlayouts, long blueCells,
+        long nanos) {
+        return new double[] {numPlayouts * 1e9 / nanos,
+            (double) blueCells / numPlayouts};
+    }
+
+    private static int intArg(String[] args, int i, int defaultValue) {
+        return (args.length > i) ? Integer.parseInt(args[i]) : defaultValue;
+    }
+
+}
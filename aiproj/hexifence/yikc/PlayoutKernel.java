@@ -0,0 +1,460 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import aiproj.hexifence.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/*
+ *  PlayoutKernel class
+ *  Plays games out to the end from a position as fast as possible, for the
+ *  Monte Carlo tree search and anything else that needs many random games.
+ *  Every player captures whenever it can, then takes a random safe edge,
+ *  then the edge that concedes the fewest cells to its opponent.
+ *
+ *  The kernel keeps its own copy of the position in primitive arrays: the
+ *  sides left of every cell and the XOR of their edges, which is the last
+ *  edge of a cell down to one side, and the edges left and the safe edges as
+ *  arrays with the index of every edge in them, so an edge is removed from
+ *  either by a swap with the last. The position is copied from a board
+ *  once, and every playout restarts from that copy, so a tree search sets
+ *  the root once per move and replays only the edges down to the node a
+ *  playout starts from. No playout allocates anything or touches the board
+ *  it was set from. Random numbers come from the caller, so a seeded
+ *  SplittableRandom repeats the same playouts. A kernel is only used by
+ *  one thread at a time
+ */
+public class PlayoutKernel implements Piece {
+
+    private static final int NOT_IN_SET = -1;
+
+    private static final int SIDES_PER_CELL = 6;
+
+    private int numEdges;
+    private int numCells;
+
+    // Cells of every edge, the second NO_CELL on the border, and the edges
+    // of every cell, SIDES_PER_CELL to a cell
+    private int[] edgeCells0;
+    private int[] edgeCells1;
+    private int[] cellEdges;
+
+    // Position set, which every playout starts from
+    private int[] startSides;
+    private int[] startSidesXor;
+    private boolean[] startTaken;
+    private int[] startLeft;
+    private int[] startLeftIndex;
+    private int startNumLeft;
+    private int[] startSafe;
+    private int[] startSafeIndex;
+    private int startNumSafe;
+    private int[] startCapturable;
+    private int startNumCapturable;
+    private int startSideToMove;
+    private int startBlueCells;
+    private int startRedCells;
+
+    // Position of the playout
+    private int[] sides;
+    private int[] sidesXor;
+    private boolean[] taken;
+    private int[] left;
+    private int[] leftIndex;
+    private int numLeft;
+    private int[] safe;
+    private int[] safeIndex;
+    private int numSafe;
+
+    // Cells that were down to one side, some of which may since be captured
+    private int[] capturable;
+    private int numCapturable;
+
+    private int sideToMove;
+    private int blueCells;
+    private int redCells;
+
+    // Cells of the chains counted so far, and the cells left to visit of
+    // the one being marked, while looking for the cheapest edge
+    private boolean[] inChain;
+    private int[] chainStack;
+
+    // Scratch undo stack of cell sides, with the edge of each, and of edges
+    // taken while counting the cells an edge concedes
+    private int[] scratchCells;
+    private int[] scratchCellEdges;
+    private int[] scratchEdges;
+    private int numScratchCells;
+    private int numScratchEdges;
+
+    public PlayoutKernel(BoardLayout layout) {
+        this.numEdges = layout.getNumEdges();
+        this.numCells = layout.getNumCells();
+
+        this.edgeCells0 = new int[this.numEdges];
+        this.edgeCells1 = new int[this.numEdges];
+        for (int e = 0; e < this.numEdges; e++) {
+            int[] cells = layout.getEdgeCells(e);
+
+            this.edgeCells0[e] = cells[0];
+            this.edgeCells1[e] = (cells.length > 1) ? cells[1] :
+                BoardLayout.NO_CELL;
+        }
+        this.cellEdges = new int[this.numCells * SIDES_PER_CELL];
+        for (int c = 0; c < this.numCells; c++) {
+            System.arraycopy(layout.getCellEdges(c), 0, this.cellEdges,
+                c * SIDES_PER_CELL, SIDES_PER_CELL);
+        }
+
+        this.startSides = new int[this.numCells];
+        this.startSidesXor = new int[this.numCells];
+        this.startTaken = new boolean[this.numEdges];
+        this.startLeft = new int[this.numEdges];
+        this.startLeftIndex = new int[this.numEdges];
+        this.startSafe = new int[this.numEdges];
+        this.startSafeIndex = new int[this.numEdges];
+        this.startCapturable = new int[this.numCells];
+
+        this.sides = new int[this.numCells];
+        this.sidesXor = new int[this.numCells];
+        this.taken = new boolean[this.numEdges];
+        this.left = new int[this.numEdges];
+        this.leftIndex = new int[this.numEdges];
+        this.safe = new int[this.numEdges];
+        this.safeIndex = new int[this.numEdges];
+        this.capturable = new int[this.numCells];
+
+        this.inChain = new boolean[this.numCells];
+        this.chainStack = new int[this.numCells];
+
+        // Each edge taken while counting removes at most two cell sides
+        this.scratchCells = new int[2 * this.numEdges];
+        this.scratchCellEdges = new int[2 * this.numEdges];
+        this.scratchEdges = new int[this.numEdges];
+    }
+
+    /* Set the position every restart goes back to to that of the board,
+     * and restart from it
+     */
+    public void setPosition(BitBoard board) {
+        this.startNumLeft = 0;
+        this.startNumSafe = 0;
+        this.startNumCapturable = 0;
+
+        for (int c = 0; c < this.numCells; c++) {
+            this.startSides[c] = board.getNumSidesUncaptured(c);
+            if (this.startSides[c] == 1) {
+                this.startCapturable[this.startNumCapturable++] = c;
+            }
+
+            this.startSidesXor[c] = 0;
+            for (int s = 0; s < SIDES_PER_CELL; s++) {
+                int e = this.cellEdges[c * SIDES_PER_CELL + s];
+                if (!board.isEdgeCaptured(e)) {
+                    this.startSidesXor[c] ^= e;
+                }
+            }
+        }
+
+        for (int e = 0; e < this.numEdges; e++) {
+            this.startTaken[e] = board.isEdgeCaptured(e);
+            this.startLeftIndex[e] = NOT_IN_SET;
+            this.startSafeIndex[e] = NOT_IN_SET;
+            if (this.startTaken[e]) {
+                continue;
+            }
+
+            this.startLeftIndex[e] = this.startNumLeft;
+            this.startLeft[this.startNumLeft++] = e;
+            if (this.hasSidesToSpare(this.edgeCells0[e], this.startSides) &&
+                this.hasSidesToSpare(this.edgeCells1[e], this.startSides)) {
+                this.startSafeIndex[e] = this.startNumSafe;
+                this.startSafe[this.startNumSafe++] = e;
+            }
+        }
+
+        this.startSideToMove = board.getSideToMove();
+        this.startBlueCells = board.getPlayerCells(BLUE);
+        this.startRedCells = board.getPlayerCells(RED);
+        this.restart();
+    }
+
+    /* Go back to the position set
+     */
+    public void restart() {
+        System.arraycopy(this.startSides, 0, this.sides, 0, this.numCells);
+        System.arraycopy(this.startSidesXor, 0, this.sidesXor, 0,
+            this.numCells);
+        System.arraycopy(this.startTaken, 0, this.taken, 0, this.numEdges);
+        System.arraycopy(this.startLeft, 0, this.left, 0, this.startNumLeft);
+        System.arraycopy(this.startLeftIndex, 0, this.leftIndex, 0,
+            this.numEdges);
+        System.arraycopy(this.startSafe, 0, this.safe, 0, this.startNumSafe);
+        System.arraycopy(this.startSafeIndex, 0, this.safeIndex, 0,
+            this.numEdges);
+        System.arraycopy(this.startCapturable, 0, this.capturable, 0,
+            this.startNumCapturable);
+
+        this.numLeft = this.startNumLeft;
+        this.numSafe = this.startNumSafe;
+        this.numCapturable = this.startNumCapturable;
+        this.sideToMove = this.startSideToMove;
+        this.blueCells = this.startBlueCells;
+        this.redCells = this.startRedCells;
+    }
+
+    /* Take an edge left for the side to move, which moves again if it
+     * completes a cell
+     */
+    public void play(int edge) {
+        this.takeEdge(edge);
+    }
+
+    /* Play the game out from the current position, drawing from the given
+     * random numbers. The cells of each player at the end are then
+     * returned by getPlayerCells
+     */
+    public void playOut(SplittableRandom random) {
+        while (this.numLeft > 0) {
+            int edge = this.getCapturingEdge();
+
+            if (edge == BoardLayout.NO_EDGE) {
+                edge = (this.numSafe > 0) ?
+                    this.safe[random.nextInt(this.numSafe)] :
+                    this.getCheapestEdge();
+            }
+            this.takeEdge(edge);
+        }
+    }
+
+    /* Return the cells the player has at the end of the last playout
+     */
+    public int getPlayerCells(int player) {
+        return (player == BLUE) ? this.blueCells : this.redCells;
+    }
+
+    /* Return true if the cell, if any, keeps at least two sides once one
+     * more is taken
+     */
+    private boolean hasSidesToSpare(int cell, int[] cellSides) {
+        return cell == BoardLayout.NO_CELL || cellSides[cell] > 2;
+    }
+
+    /* Return the last side of a cell down to one side, or
+     * BoardLayout.NO_EDGE if no cell can be captured
+     */
+    private int getCapturingEdge() {
+        while (this.numCapturable > 0) {
+            int cell = this.capturable[this.numCapturable - 1];
+
+            if (this.sides[cell] == 1) {
+                return this.sidesXor[cell];
+            }
+            // Captured since
+            this.numCapturable--;
+        }
+        return BoardLayout.NO_EDGE;
+    }
+
+    /* Take the edge for the side to move, capturing any cell it completes.
+     * The same player moves again after a capture
+     */
+    private void takeEdge(int edge) {
+        this.taken[edge] = true;
+        removeFromSet(edge, this.left, this.leftIndex, this.numLeft--);
+        if (this.safeIndex[edge] != NOT_IN_SET) {
+            removeFromSet(edge, this.safe, this.safeIndex, this.numSafe--);
+        }
+
+        int numCaptured = this.takeSide(this.edgeCells0[edge], edge) +
+            this.takeSide(this.edgeCells1[edge], edge);
+        if (numCaptured == 0) {
+            this.sideToMove = (this.sideToMove == BLUE) ? RED : BLUE;
+        } else if (this.sideToMove == BLUE) {
+            this.blueCells += numCaptured;
+        } else {
+            this.redCells += numCaptured;
+        }
+    }
+
+    /* Take the edge's side of the cell, if any, keeping the safe edges and
+     * the capturable cells up to date. Return 1 if it completes the cell
+     */
+    private int takeSide(int cell, int edge) {
+        if (cell == BoardLayout.NO_CELL) {
+            return 0;
+        }
+
+        this.sidesXor[cell] ^= edge;
+        int cellSides = --this.sides[cell];
+        if (cellSides == 2) {
+            // None of its sides can be taken safely any more
+            int base = cell * SIDES_PER_CELL;
+            for (int s = 0; s < SIDES_PER_CELL; s++) {
+                int e = this.cellEdges[base + s];
+                if (this.safeIndex[e] != NOT_IN_SET) {
+                    removeFromSet(e, this.safe, this.safeIndex,
+                        this.numSafe--);
+                }
+            }
+        } else if (cellSides == 1) {
+            this.capturable[this.numCapturable++] = cell;
+        }
+        return (cellSides == 0) ? 1 : 0;
+    }
+
+    /* Remove an edge from a set of the given size by swapping the last
+     * edge into its place
+     */
+    private static void removeFromSet(int edge, int[] set, int[] index,
+        int size) {
+        int i = index[edge];
+        int last = set[size - 1];
+
+        set[i] = last;
+        index[last] = i;
+        index[edge] = NOT_IN_SET;
+    }
+
+    /* Return the edge left that concedes the fewest cells to the opponent.
+     * Called once no safe edges or captures are left, when every edge left
+     * borders at least one cell of two sides, though its other cell may
+     * have more. Every edge of a chain or loop of two-sided cells concedes
+     * the same cells, so only the first edge of each is counted, and as
+     * every edge concedes at least one cell the first that concedes one is
+     * taken
+     */
+    private int getCheapestEdge() {
+        int cheapestEdge = BoardLayout.NO_EDGE;
+        int fewestCells = Integer.MAX_VALUE;
+
+        Arrays.fill(this.inChain, false);
+        for (int c = 0; c < this.numCells && fewestCells > 1; c++) {
+            if (this.sides[c] == 2 && !this.inChain[c]) {
+                int edge = this.getFirstEdge(c);
+                int numCells = this.countCellsConceded(edge);
+
+                this.markChain(c);
+                if (numCells < fewestCells) {
+                    fewestCells = numCells;
+                    cheapestEdge = edge;
+                }
+            }
+        }
+        return cheapestEdge;
+    }
+
+    /* Return the first edge left of the cell
+     */
+    private int getFirstEdge(int cell) {
+        int base = cell * SIDES_PER_CELL;
+
+        for (int s = 0; s < SIDES_PER_CELL; s++) {
+            if (!this.taken[this.cellEdges[base + s]]) {
+                return this.cellEdges[base + s];
+            }
+        }
+        return BoardLayout.NO_EDGE;
+    }
+
+    /* Mark every cell of the chain or loop of two-sided cells through the
+     * cell
+     */
+    private void markChain(int cell) {
+        int numStacked = 0;
+
+        this.inChain[cell] = true;
+        this.chainStack[numStacked++] = cell;
+        while (numStacked > 0) {
+            int c = this.chainStack[--numStacked];
+            int base = c * SIDES_PER_CELL;
+
+            for (int s = 0; s < SIDES_PER_CELL; s++) {
+                int e = this.cellEdges[base + s];
+                if (this.taken[e]) {
+                    continue;
+                }
+
+                int other = (this.edgeCells0[e] == c) ? this.edgeCells1[e] :
+                    this.edgeCells0[e];
+                if (other != BoardLayout.NO_CELL && this.sides[other] == 2 &&
+                    !this.inChain[other]) {
+                    this.inChain[other] = true;
+                    this.chainStack[numStacked++] = other;
+                }
+            }
+        }
+    }
+
+    /* Count the cells the opponent can capture in a row once the edge is
+     * taken, by following the chains through both of its cells. The
+     * position is left unchanged
+     */
+    private int countCellsConceded(int edge) {
+        int numCells = 0;
+
+        this.numScratchCells = 0;
+        this.numScratchEdges = 0;
+        this.scratchTake(edge);
+        numCells += this.followChain(this.edgeCells0[edge]);
+        numCells += this.followChain(this.edgeCells1[edge]);
+
+        while (this.numScratchCells > 0) {
+            int cell = this.scratchCells[--this.numScratchCells];
+
+            this.sides[cell]++;
+            this.sidesXor[cell] ^= this.scratchCellEdges[this.numScratchCells];
+        }
+        while (this.numScratchEdges > 0) {
+            this.taken[this.scratchEdges[--this.numScratchEdges]] = false;
+        }
+        return numCells;
+    }
+
+    /* Capture cells on the scratch stacks from a cell for as long as each
+     * is down to one side. Return the number of cells captured
+     */
+    private int followChain(int cell) {
+        int numCells = 0;
+
+        while (cell != BoardLayout.NO_CELL && this.sides[cell] == 1) {
+            int edge = this.sidesXor[cell];
+            numCells += this.scratchTake(edge);
+
+            // Carry on into the other cell of the edge
+            cell = (this.edgeCells0[edge] == cell) ? this.edgeCells1[edge] :
+                this.edgeCells0[edge];
+        }
+        return numCells;
+    }
+
+    /* Take an edge on the scratch stacks. Return the cells it completes
+     */
+    private int scratchTake(int edge) {
+        this.taken[edge] = true;
+        this.scratchEdges[this.numScratchEdges++] = edge;
+
+        return this.scratchTakeSide(this.edgeCells0[edge], edge) +
+            this.scratchTakeSide(this.edgeCells1[edge], edge);
+    }
+
+    /* Take the edge's side of the cell, if any, on the scratch stack.
+     * Return 1 if it completes the cell
+     */
+    private int scratchTakeSide(int cell, int edge) {
+        if (cell == BoardLayout.NO_CELL) {
+            return 0;
+        }
+
+        this.scratchCells[this.numScratchCells] = cell;
+        this.scratchCellEdges[this.numScratchCells++] = edge;
+        this.sidesXor[cell] ^= edge;
+        return (--this.sides[cell] == 0) ? 1 : 0;
+    }
+
+}
@@ -44,4 +44,9 @@ public class Point {
         }
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * x + y;
+    }
+
 }
@@ -0,0 +1,978 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import aiproj.hexifence.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ *  Search class
+ *  History heuristic alpha-beta search over the safe moves of a board, run
+ *  by iterative deepening within a time budget. Moves are made and taken
+ *  back on the player's board in place
+ */
+public class Search implements Piece, MoveSearch {
+
+    private static final int BETA = Integer.MAX_VALUE;
+
+    // Bound of the negamax searches, which negate their windows, beyond any
+    // score
+    private static final int INFINITY = 1 << 20;
+
+    // The clock is only read once every so many nodes
+    private static final int NODES_PER_TIME_CHECK = 256;
+
+    // A game can never last longer than this many plies
+    private static final int MAX_PLY = 256;
+
+    // History scores are weighted by 2^(safe moves left), at most this
+    // power so they never overflow
+    private static final int MAX_HISTORY_SHIFT = 30;
+
+    private static final int NUM_KILLERS = 2;
+
+    private BitBoard board;
+    private BoardLayout layout;
+    private int player;
+    private int oppPlayer;
+
+    // History heuristic score of every edge for each player, indexed by
+    // [player][edge], halved at the start of every move so old successes
+    // fade
+    private long[][] historyScores;
+
+    // Two moves of every ply that last caused a cut-off there, and the
+    // move of each player that last refuted each edge, indexed by
+    // [player][edge refuted]
+    private int[][] killers;
+    private int[][] counterMoves;
+    private TranspositionTable transpositionTable;
+    private EndgameSolver endgameSolver;
+    private SearchTimer timer;
+
+    private long nodes;
+    private boolean aborted;
+
+    // Nodes cut off, and those cut off by the first move searched
+    private long cutoffs;
+    private long firstMoveCutoffs;
+
+    // Set by another thread to end the search early
+    private volatile boolean stopped;
+
+    // Iterations never go deeper than this
+    private int maxDepth;
+
+    // SearchConfig.ALPHA_BETA, SearchConfig.PVS or SearchConfig.MTDF
+    private int algorithm;
+
+    // Score of the root by the last completed iteration of this move, the
+    // first guess of MTD(f) and the centre of the aspiration window
+    private int lastScore;
+    private boolean hasLastScore;
+
+    // Aspiration window settings, and the number of iterations searched
+    // with a window and of searches again after falling outside it
+    private int aspirationWidth;
+    private int aspirationGrowth;
+    private long aspirationSearches;
+    private long reSearches;
+
+    // Best edge found at the root by the last alpha-beta search
+    private int rootBestEdge;
+
+    // Safe edges of every ply and their history scores while sorting,
+    // generated into the same buffers at every node
+    private int[][] moveBuffers;
+    private long[][] scoreBuffers;
+
+    // Principal variation of the current iteration, as a triangular table
+    // of edges, and that of the last completed iteration
+    private int[][] pvTable;
+    private int[] pvLength;
+    private int[] previousPv;
+    private int previousPvLength;
+
+    // Best root score found so far by any thread of a parallel search, or
+    // null when searching alone
+    private AtomicInteger sharedAlpha;
+
+    public Search(BitBoard board, int player, SearchConfig config) {
+        this(board, player, config, new TranspositionTable(
+            config.getTtEntries(), TranspositionTable.TWO_TIER));
+    }
+
+    /* Create a search using the given transposition table, which may be
+     * shared with the searches of other threads
+     */
+    public Search(BitBoard board, int player, SearchConfig config,
+        TranspositionTable transpositionTable) {
+        this.board = board;
+        this.layout = board.getLayout();
+        this.player = player;
+        this.oppPlayer = BitBoard.opponentOf(player);
+
+        this.historyScores = new long[RED + 1][this.layout.getNumEdges()];
+        this.killers = new int[MAX_PLY][NUM_KILLERS];
+        for (int[] plyKillers: this.killers) {
+            Arrays.fill(plyKillers, TranspositionTable.NO_MOVE);
+        }
+        this.counterMoves = new int[RED + 1][this.layout.getNumEdges()];
+        for (int[] moves: this.counterMoves) {
+            Arrays.fill(moves, TranspositionTable.NO_MOVE);
+        }
+        this.transpositionTable = transpositionTable;
+        this.timer = new SearchTimer(config.getMoveTimeMillis(),
+            config.getGameTimeMillis());
+        this.maxDepth = config.getMaxDepth();
+        this.algorithm = config.getAlgorithm();
+        this.aspirationWidth = config.getAspirationWidth();
+        this.aspirationGrowth = config.getAspirationGrowth();
+        this.endgameSolver = new EndgameSolver(this.layout.getNumCells(),
+            EndgameCache.getShared(), EndgameTablebase.getShared());
+
+        // Rollouts look up the cells each edge concedes in the chains
+        board.getChains();
+
+        this.moveBuffers = new int[MAX_PLY][this.layout.getNumEdges()];
+        this.scoreBuffers = new long[MAX_PLY][this.layout.getNumEdges()];
+
+        this.pvTable = new int[MAX_PLY][MAX_PLY];
+        this.pvLength = new int[MAX_PLY];
+        this.previousPv = new int[MAX_PLY];
+        this.previousPvLength = 0;
+    }
+
+    @Override
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    @Override
+    public long getAspirationSearches() {
+        return this.aspirationSearches;
+    }
+
+    @Override
+    public long getReSearches() {
+        return this.reSearches;
+    }
+
+    @Override
+    public long getCutoffs() {
+        return this.cutoffs;
+    }
+
+    @Override
+    public long getFirstMoveCutoffs() {
+        return this.firstMoveCutoffs;
+    }
+
+    public BitBoard getBoard() {
+        return this.board;
+    }
+
+    public boolean isAborted() {
+        return this.aborted;
+    }
+
+    /* Make a search running in another thread give up as soon as it next
+     * looks at the clock
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /* Nothing to stop, the search runs on the caller's thread
+     */
+    @Override
+    public void close() {
+    }
+
+    /* Share the best root score with the other threads of a parallel search.
+     * Every node narrows its window to it, so a cut-off found by one thread
+     * prunes the subtrees of all of them
+     */
+    public void setSharedAlpha(AtomicInteger sharedAlpha) {
+        this.sharedAlpha = sharedAlpha;
+    }
+
+    /* Start searching a move as one thread of a parallel search, keeping to
+     * the parallel search's timer. The parallel search starts the new search
+     * of the transposition table
+     */
+    public void beginMove(SearchTimer timer) {
+        this.timer = timer;
+        this.aborted = false;
+        this.stopped = false;
+        this.previousPvLength = 0;
+        this.lastScore = 0;
+        this.hasLastScore = false;
+        this.ageHistory();
+
+        // Killers belong to the plies of the last move's tree
+        for (int[] plyKillers: this.killers) {
+            Arrays.fill(plyKillers, TranspositionTable.NO_MOVE);
+        }
+    }
+
+    /* Halve every history score, so the moves that did well in the last
+     * searches still come first without outweighing those of this one
+     */
+    private void ageHistory() {
+        for (long[] scores: this.historyScores) {
+            for (int e = 0; e < scores.length; e++) {
+                scores[e] >>= 1;
+            }
+        }
+    }
+
+    /* Return the safe moves of the root in the order they should be searched,
+     * with the given edge first
+     */
+    public ArrayList<Move> orderRootMoves(int firstEdge) {
+        int[] edges = this.moveBuffers[0];
+        int numEdges = this.board.generateSafeEdges(edges);
+        ArrayList<Move> moves = new ArrayList<Move>();
+
+        sortMoveBasedOnHistory(edges, 0, numEdges, this.scoreBuffers[0],
+            this.player);
+        int symmetry = this.board.getCanonicalSymmetry();
+        long entry = this.transpositionTable.probe(
+            this.board.getSymmetricKey(symmetry));
+        if (entry != TranspositionTable.NO_ENTRY) {
+            moveToFront(edges, numEdges, this.fromCanonical(symmetry,
+                TranspositionTable.getMove(entry)));
+        }
+        moveToFront(edges, numEdges, firstEdge);
+
+        for (int i = 0; i < numEdges; i++) {
+            moves.add(this.newMove(edges[i], this.player));
+        }
+        return moves;
+    }
+
+    /* Search one move of the root to depth plies, with alpha the best score
+     * of the root moves searched so far.
+     *
+     * Return the score of the move, which is at most alpha when the move is
+     * no better
+     */
+    public int searchRootMove(Move move, int depth, int alpha) {
+        return this.searchRootMove(move, depth, alpha, BETA);
+    }
+
+    /* Search one move of the root to depth plies within the window.
+     *
+     * Return the score of the move, which is at most alpha or at least beta
+     * when it falls outside the window
+     */
+    public int searchRootMove(Move move, int depth, int alpha, int beta) {
+        int edge = this.layout.getEdgeIndex(move.Row, move.Col);
+
+        this.board.makeMove(edge, this.player);
+        int value;
+        if (this.algorithm != SearchConfig.ALPHA_BETA) {
+            // Root splitting never runs MTD(f), SearchConfig rejects it
+            value = -principalVariation(1, depth - 1,
+                -Math.min(beta, INFINITY), -Math.max(alpha, -INFINITY),
+                false);
+        } else {
+            value = alphaBeta(1, depth - 1, alpha, beta, false);
+        }
+        this.board.unmakeMove();
+
+        return value;
+    }
+
+    @Override
+    public Move findBestMove() {
+        // Both players share the moves left, this player makes about half
+        this.timer.startMove(this.board.getPossibleMoves() / 2 + 1);
+        Move bestMove = this.findBestMove(this.timer);
+        this.timer.stopMove();
+
+        return bestMove;
+    }
+
+    /* Iterative deepening: search the safe moves one ply deeper at a time
+     * until the search reaches the end of the safe moves or the time for
+     * the move runs out. Each iteration searches the principal variation
+     * of the last one first.
+     *
+     * Return the best move of the last completed iteration
+     */
+    @Override
+    public Move findBestMove(SearchTimer timer) {
+        this.transpositionTable.newSearch();
+        this.beginMove(timer);
+
+        Move bestMove = this.deepen(1, false);
+
+        if (bestMove == null) {
+            // Not even the first iteration finished, take any safe move
+            bestMove = this.newMove(this.board.getFirstSafeEdge(),
+                this.player);
+        }
+        return bestMove;
+    }
+
+    /* Deepen iteratively from firstDepth on the move begun by beginMove.
+     * The helper threads of a parallel search only fill the shared
+     * transposition table, so they go on until time runs out or they are
+     * stopped rather than stopping once half the time is used.
+     *
+     * Return the best move of the last completed iteration, or null
+     */
+    public Move deepen(int firstDepth, boolean helper) {
+        int lastDepth = Math.min(this.board.countSafeEdges(), this.maxDepth);
+        Move bestMove = null;
+
+        for (int depth = firstDepth; depth <= lastDepth; depth++) {
+            int score = this.searchIteration(depth);
+            if (this.aborted) {
+                break;
+            }
+
+            this.lastScore = score;
+            this.hasLastScore = true;
+
+            bestMove = this.newMove(this.rootBestEdge, this.player);
+            this.previousPvLength = this.pvLength[0];
+            System.arraycopy(this.pvTable[0], 0, this.previousPv, 0,
+                this.previousPvLength);
+
+            if (!helper && this.timer.isPastHalfTime()) {
+                break;
+            }
+        }
+        return bestMove;
+    }
+
+    /* Search the root to depth plies with the algorithm that is set.
+     *
+     * Return the score of the root
+     */
+    private int searchIteration(int depth) {
+        if (this.algorithm == SearchConfig.MTDF) {
+            return this.mtdf(depth, this.lastScore);
+        } else if (this.aspirationWidth > 0 && this.hasLastScore) {
+            return this.aspirate(depth);
+        }
+        return this.searchRoot(depth, -INFINITY, INFINITY);
+    }
+
+    /* Search the root to depth plies within a window around the score of
+     * the last iteration, which the score is most likely close to, so more
+     * of the tree is cut off. A score outside the window only bounds the
+     * true score, so the side it fell out of is widened and the root
+     * searched again until the score falls inside.
+     *
+     * Return the score of the root
+     */
+    private int aspirate(int depth) {
+        int width = this.aspirationWidth;
+        int alpha = Math.max(this.lastScore - width, -INFINITY);
+        int beta = Math.min(this.lastScore + width, INFINITY);
+
+        this.aspirationSearches++;
+        while (true) {
+            int score = this.searchRoot(depth, alpha, beta);
+
+            if (this.aborted || (score > alpha && score < beta) ||
+                (score <= alpha && alpha == -INFINITY) ||
+                (score >= beta && beta == INFINITY)) {
+                return score;
+            }
+
+            this.reSearches++;
+            width = (this.aspirationGrowth > 1) ?
+                Math.min(width * this.aspirationGrowth, INFINITY) : INFINITY;
+            if (score <= alpha) {
+                alpha = Math.max(score - width, -INFINITY);
+            } else {
+                beta = Math.min(score + width, INFINITY);
+            }
+        }
+    }
+
+    /* Search the root to depth plies within the window with the algorithm
+     * that is set, principal variation or alpha-beta.
+     *
+     * Return the score of the root
+     */
+    private int searchRoot(int depth, int alpha, int beta) {
+        if (this.algorithm == SearchConfig.ALPHA_BETA) {
+            return alphaBeta(0, depth, alpha, beta, true);
+        }
+        return principalVariation(0, depth, alpha, beta, true);
+    }
+
+    /* MTD(f): close in on the score of the root to depth plies by
+     * zero-window searches only, each either raising its lower bound or
+     * lowering its upper bound, starting from a guess. Every pass is cheap
+     * as it only proves a bound, and the transposition table keeps the
+     * work of the passes before it. Scores are a few cells either way, so
+     * few passes are needed.
+     *
+     * Return the score of the root, its best move is kept in rootBestEdge
+     */
+    private int mtdf(int depth, int firstGuess) {
+        int score = firstGuess;
+        int lowerBound = -INFINITY;
+        int upperBound = INFINITY;
+        int bestEdge = TranspositionTable.NO_MOVE;
+
+        while (lowerBound < upperBound) {
+            int beta = (score == lowerBound) ? score + 1 : score;
+
+            score = principalVariation(0, depth, beta - 1, beta, true);
+            if (this.aborted) {
+                return 0;
+            }
+
+            if (score < beta) {
+                upperBound = score;
+            } else {
+                // Only a pass that fails high proves its best move
+                lowerBound = score;
+                bestEdge = this.rootBestEdge;
+            }
+        }
+
+        if (bestEdge != TranspositionTable.NO_MOVE) {
+            this.rootBestEdge = bestEdge;
+        }
+        return score;
+    }
+
+    /* Recursive alpha-beta pruning for either maximizing or minimizing
+     * player, to depth more plies. Moves are made and taken back on the
+     * board in place, ply is the number of moves made since the root.
+     *
+     * The first call should only be when there are still safe moves available
+     * in the game and no cells are available for capture in one move
+     *
+     * Return the best score, the best move of the root is kept in rootBestMove
+     */
+    private int alphaBeta(int ply, int depth, int alpha, int beta,
+        boolean maxPlayer) {
+        int bestValue;
+        int bestEdge = TranspositionTable.NO_MOVE;
+
+        this.pvLength[ply] = 0;
+        if ((++this.nodes % NODES_PER_TIME_CHECK) == 0 &&
+            (this.stopped || this.timer.isTimeUp())) {
+            this.aborted = true;
+        }
+        if (this.aborted) {
+            return 0;
+        }
+
+        // Any line the root can already do better than is of no interest.
+        // The window is kept open by at least one so its bounds hold
+        if (this.sharedAlpha != null) {
+            alpha = Math.max(alpha,
+                Math.min(this.sharedAlpha.get(), beta - 1));
+        }
+
+        int originalAlpha = alpha;
+        int originalBeta = beta;
+
+        // Scores are always from this player's point of view, the side to
+        // move is part of the key. Symmetric positions share the entry of
+        // the smallest of their keys, its move taken under that symmetry
+        int symmetry = this.board.getCanonicalSymmetry();
+        long key = this.board.getSymmetricKey(symmetry);
+        int ttMove = TranspositionTable.NO_MOVE;
+        long entry = this.transpositionTable.probe(key);
+        if (entry != TranspositionTable.NO_ENTRY) {
+            ttMove = this.fromCanonical(symmetry,
+                TranspositionTable.getMove(entry));
+
+            // The root still needs its best move, so never cut it off
+            if (ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+                int ttScore = TranspositionTable.getScore(entry);
+                int bound = TranspositionTable.getBound(entry);
+
+                if (bound == TranspositionTable.EXACT) {
+                    return ttScore;
+                } else if (bound == TranspositionTable.LOWER_BOUND) {
+                    alpha = Math.max(alpha, ttScore);
+                } else {
+                    beta = Math.min(beta, ttScore);
+                }
+                if (beta <= alpha) {
+                    return ttScore;
+                }
+            }
+        }
+
+        int player = maxPlayer ? this.player : this.oppPlayer;
+        int[] safeMoves = this.moveBuffers[ply];
+        int numSafeMoves = this.board.generateSafeEdges(safeMoves);
+
+        // A search at least as deep as the number of safe moves reaches the
+        // end of every line, its result holds for any depth
+        int draft = (depth >= numSafeMoves) ?
+            TranspositionTable.MAX_DEPTH : depth;
+
+        if (numSafeMoves == 0 || depth == 0) {
+            bestValue = predictWinningBoardState(maxPlayer);
+        }
+        else {
+            bestValue = maxPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+
+            // Try the moves most likely to cut off first, and only sort the
+            // rest by history once none of them has
+            int lastEdge = this.board.getLastEdge();
+            int numOrdered = this.orderFirstMoves(ply, safeMoves,
+                numSafeMoves, ttMove, player, lastEdge);
+
+            // For each valid move, make the move, recurse and take it back.
+            // Safe moves never capture a cell, so the turn always passes
+            int resultValue;
+            for (int i = 0; i < numSafeMoves; i++) {
+                if (i == numOrdered) {
+                    sortMoveBasedOnHistory(safeMoves, numOrdered,
+                        numSafeMoves, this.scoreBuffers[ply], player);
+                }
+                int edge = safeMoves[i];
+                this.board.makeMove(edge, player);
+                resultValue = alphaBeta(ply + 1, depth - 1, alpha, beta,
+                    !maxPlayer);
+                this.board.unmakeMove();
+
+                if (this.aborted) {
+                    return 0;
+                }
+
+                if (maxPlayer) {
+                    if (resultValue > bestValue) {
+                        bestValue = resultValue;
+                        bestEdge = edge;
+                        this.updatePv(ply, edge);
+                    }
+                    alpha = Math.max(alpha, bestValue);
+                    if (beta <= alpha) {
+                        this.recordCutoff(ply, i, edge, player, lastEdge);
+                        break; // cut-off
+                    }
+                }
+                else {
+                    if (resultValue < bestValue) {
+                        bestValue = resultValue;
+                        bestEdge = edge;
+                        this.updatePv(ply, edge);
+                    }
+                    beta = Math.min(beta, bestValue);
+                    if (beta <= alpha) {
+                        this.recordCutoff(ply, i, edge, player, lastEdge);
+                        break; // cut-off
+                    }
+                }
+            }
+
+            // Credit the best move in the history of the player who made
+            // it, more so the more safe moves were left below it
+            if (bestEdge != TranspositionTable.NO_MOVE) {
+                this.historyScores[player][bestEdge] +=
+                    1L << Math.min(numSafeMoves, MAX_HISTORY_SHIFT);
+            }
+        }
+
+        this.storeResult(key, symmetry, draft, bestValue, originalAlpha,
+            originalBeta, bestEdge);
+
+        if (ply == 0) {
+            this.rootBestEdge = bestEdge;
+        }
+        return bestValue;
+    }
+
+    /* Move the first moves to try to the front of the safe moves, in the
+     * order: the move of the last principal variation, the move stored for
+     * the position, the killers of the ply and the countermove of the
+     * player to the last edge taken.
+     *
+     * Return the number of moves moved to the front
+     */
+    private int orderFirstMoves(int ply, int[] moves, int numMoves,
+        int ttMove, int player, int lastEdge) {
+        int numOrdered = 0;
+
+        if (ply < this.previousPvLength) {
+            numOrdered = promote(moves, numMoves, numOrdered,
+                this.previousPv[ply]);
+        }
+        numOrdered = promote(moves, numMoves, numOrdered, ttMove);
+        for (int killer: this.killers[ply]) {
+            numOrdered = promote(moves, numMoves, numOrdered, killer);
+        }
+        if (lastEdge != BoardLayout.NO_EDGE) {
+            numOrdered = promote(moves, numMoves, numOrdered,
+                this.counterMoves[player][lastEdge]);
+        }
+        return numOrdered;
+    }
+
+    /* Remember the move that cut off the node at ply, the index-th move
+     * searched there, as a killer of the ply and the player's countermove
+     * to the last edge taken
+     */
+    private void recordCutoff(int ply, int index, int edge, int player,
+        int lastEdge) {
+        this.cutoffs++;
+        if (index == 0) {
+            this.firstMoveCutoffs++;
+        }
+
+        int[] plyKillers = this.killers[ply];
+        if (plyKillers[0] != edge) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = edge;
+        }
+        if (lastEdge != BoardLayout.NO_EDGE) {
+            this.counterMoves[player][lastEdge] = edge;
+        }
+    }
+
+    /* Principal variation search in negamax form, to depth more plies.
+     * Scores are from the point of view of the player to move, this player
+     * when maxPlayer is set. The first move of every node is searched with
+     * the full window and the others with a null window, which only says
+     * whether they beat alpha; one that does is searched again with the
+     * full window for its score.
+     *
+     * The transposition table, move ordering and shared alpha are the same
+     * as those of alphaBeta, converted to and from this player's point of
+     * view.
+     *
+     * Return the best score, the best move of the root is kept in
+     * rootBestEdge
+     */
+    private int principalVariation(int ply, int depth, int alpha, int beta,
+        boolean maxPlayer) {
+        int sign = maxPlayer ? 1 : -1;
+        int bestValue;
+        int bestEdge = TranspositionTable.NO_MOVE;
+
+        this.pvLength[ply] = 0;
+        if ((++this.nodes % NODES_PER_TIME_CHECK) == 0 &&
+            (this.stopped || this.timer.isTimeUp())) {
+            this.aborted = true;
+        }
+        if (this.aborted) {
+            return 0;
+        }
+
+        // This player's window, narrowed by the shared alpha as in
+        // alphaBeta
+        int playerAlpha = maxPlayer ? alpha : -beta;
+        int playerBeta = maxPlayer ? beta : -alpha;
+        if (this.sharedAlpha != null) {
+            playerAlpha = Math.max(playerAlpha,
+                Math.min(this.sharedAlpha.get(), playerBeta - 1));
+        }
+
+        int originalAlpha = playerAlpha;
+        int originalBeta = playerBeta;
+
+        int symmetry = this.board.getCanonicalSymmetry();
+        long key = this.board.getSymmetricKey(symmetry);
+        int ttMove = TranspositionTable.NO_MOVE;
+        long entry = this.transpositionTable.probe(key);
+        if (entry != TranspositionTable.NO_ENTRY) {
+            ttMove = this.fromCanonical(symmetry,
+                TranspositionTable.getMove(entry));
+
+            if (ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+                int ttScore = TranspositionTable.getScore(entry);
+                int bound = TranspositionTable.getBound(entry);
+
+                if (bound == TranspositionTable.EXACT) {
+                    return sign * ttScore;
+                } else if (bound == TranspositionTable.LOWER_BOUND) {
+                    playerAlpha = Math.max(playerAlpha, ttScore);
+                } else {
+                    playerBeta = Math.min(playerBeta, ttScore);
+                }
+                if (playerBeta <= playerAlpha) {
+                    return sign * ttScore;
+                }
+            }
+        }
+
+        alpha = maxPlayer ? playerAlpha : -playerBeta;
+        beta = maxPlayer ? playerBeta : -playerAlpha;
+
+        int player = maxPlayer ? this.player : this.oppPlayer;
+        int[] safeMoves = this.moveBuffers[ply];
+        int numSafeMoves = this.board.generateSafeEdges(safeMoves);
+        int draft = (depth >= numSafeMoves) ?
+            TranspositionTable.MAX_DEPTH : depth;
+
+        if (numSafeMoves == 0 || depth == 0) {
+            bestValue = sign * predictWinningBoardState(maxPlayer);
+        } else {
+            bestValue = -INFINITY;
+
+            int lastEdge = this.board.getLastEdge();
+            int numOrdered = this.orderFirstMoves(ply, safeMoves,
+                numSafeMoves, ttMove, player, lastEdge);
+
+            for (int i = 0; i < numSafeMoves; i++) {
+                if (i == numOrdered) {
+                    sortMoveBasedOnHistory(safeMoves, numOrdered,
+                        numSafeMoves, this.scoreBuffers[ply], player);
+                }
+                int edge = safeMoves[i];
+                int value;
+
+                this.board.makeMove(edge, player);
+                if (i == 0) {
+                    value = -principalVariation(ply + 1, depth - 1, -beta,
+                        -alpha, !maxPlayer);
+                } else {
+                    value = -principalVariation(ply + 1, depth - 1,
+                        -alpha - 1, -alpha, !maxPlayer);
+                    if (value > alpha && value < beta) {
+                        value = -principalVariation(ply + 1, depth - 1,
+                            -beta, -alpha, !maxPlayer);
+                    }
+                }
+                this.board.unmakeMove();
+
+                if (this.aborted) {
+                    return 0;
+                }
+
+                if (value > bestValue) {
+                    bestValue = value;
+                    bestEdge = edge;
+                    this.updatePv(ply, edge);
+                }
+                alpha = Math.max(alpha, value);
+                if (alpha >= beta) {
+                    this.recordCutoff(ply, i, edge, player, lastEdge);
+                    break;
+                }
+            }
+
+            if (bestEdge != TranspositionTable.NO_MOVE) {
+                this.historyScores[player][bestEdge] +=
+                    1L << Math.min(numSafeMoves, MAX_HISTORY_SHIFT);
+            }
+        }
+
+        this.storeResult(key, symmetry, draft, sign * bestValue,
+            originalAlpha, originalBeta, bestEdge);
+
+        if (ply == 0) {
+            this.rootBestEdge = bestEdge;
+        }
+        return bestValue;
+    }
+
+    /* Store the score of a node, from this player's point of view, bounded
+     * by the window it was searched with and keeping its best move under
+     * the symmetry of the key. Children may have searched with a higher
+     * shared alpha since, so a score up to it can only be an upper bound
+     */
+    private void storeResult(long key, int symmetry, int draft, int value,
+        int originalAlpha, int originalBeta, int bestEdge) {
+        if (this.sharedAlpha != null) {
+            originalAlpha = Math.max(originalAlpha,
+                Math.min(this.sharedAlpha.get(), originalBeta - 1));
+        }
+
+        int bound;
+        if (value <= originalAlpha) {
+            bound = TranspositionTable.UPPER_BOUND;
+        } else if (value >= originalBeta) {
+            bound = TranspositionTable.LOWER_BOUND;
+        } else {
+            bound = TranspositionTable.EXACT;
+        }
+        this.transpositionTable.store(key, draft, bound, value,
+            (bestEdge == TranspositionTable.NO_MOVE) ? bestEdge :
+            this.layout.getSymmetricEdge(symmetry, bestEdge));
+    }
+
+    /* Make edge followed by the principal variation of the child the
+     * principal variation of ply
+     */
+    private void updatePv(int ply, int edge) {
+        int childLength = this.pvLength[ply + 1];
+
+        this.pvTable[ply][0] = edge;
+        System.arraycopy(this.pvTable[ply + 1], 0, this.pvTable[ply], 1,
+            childLength);
+        this.pvLength[ply] = childLength + 1;
+    }
+
+    /* Return value of the game by predicting the end state of board.
+     * Once the safe edges are gone and the cells left form independent
+     * chains and loops, the endgame solver gives the exact end state, and
+     * with a tablebase it gives the end state of regions with joints too.
+     * Otherwise assume each player captures every cell it can, then takes
+     * the first safe edge left, and otherwise chooses the move that gives
+     * the lowest cells capturable by the other player.
+     * The board is played out in place and restored before returning
+     */
+    private int predictWinningBoardState(boolean maxPlayer) {
+        int startPly = this.board.getPly();
+        int player = maxPlayer ? this.player : this.oppPlayer;
+        int edge;
+
+        int solved = this.endgameSolver.solve(this.board);
+        if (solved != EndgameSolver.UNKNOWN) {
+            // The player to move gets half of the cells left and the
+            // difference it wins by
+            int cellsLeft = this.layout.getNumCells() -
+                this.board.getPlayerCells(RED) -
+                this.board.getPlayerCells(BLUE);
+            int moverCells = (cellsLeft + solved) / 2;
+            int cellsWon = (player == this.player) ? moverCells :
+                cellsLeft - moverCells;
+
+            return evaluateCells(this.board.getPlayerCells(this.player) +
+                cellsWon);
+        }
+
+        // Loop through until the game ends - no more empty edges available
+        while (this.board.getPossibleMoves() > 0) {
+            edge = this.board.getCapturingEdge();
+            if (edge == BoardLayout.NO_EDGE) {
+                edge = this.board.getFirstSafeEdge();
+            }
+            if (edge == BoardLayout.NO_EDGE) {
+                edge = this.board.getCheapestEdge(player);
+            }
+
+            // The turn only passes when no cell is captured
+            if (this.board.makeMove(edge, player) == 0) {
+                player = BitBoard.opponentOf(player);
+            }
+        }
+
+        int value = evaluateBoardState();
+        this.board.unmakeMoves(startPly);
+        return value;
+    }
+
+    /* Evaluate the board and return an integer that represents
+     * the utility of this player
+     * */
+    private int evaluateBoardState() {
+        return evaluateCells(this.board.getPlayerCells(this.player));
+    }
+
+    /* Return the utility of this player ending the game with the given
+     * number of cells
+     */
+    private int evaluateCells(int numCapturedCells) {
+        int LOST = -1;
+
+        int numToWin = this.layout.getNumCells()/2 + 1;
+
+        int value = numCapturedCells - numToWin;
+        return (value >= 0) ? value : LOST;
+    }
+
+    /* Return the move of the player taking the edge
+     */
+    private Move newMove(int edge, int player) {
+        Point edgePoint = this.layout.getEdgePoint(edge);
+        Move move = new Move();
+
+        move.P = player;
+        move.Row = edgePoint.getX();
+        move.Col = edgePoint.getY();
+        return move;
+    }
+
+    /* Return the edge of the board a move stored under the given symmetry
+     * stands for, or NO_MOVE
+     */
+    private int fromCanonical(int symmetry, int edge) {
+        if (edge == TranspositionTable.NO_MOVE) {
+            return edge;
+        }
+        return this.layout.getSymmetricEdge(
+            this.layout.getInverseSymmetry(symmetry), edge);
+    }
+
+    /* Swap the given edge into index from, if it is one of the moves from
+     * there on.
+     *
+     * Return the index after the last move moved to the front
+     */
+    private static int promote(int[] moves, int numMoves, int from,
+        int edge) {
+        if (edge == TranspositionTable.NO_MOVE) {
+            return from;
+        }
+
+        for (int i = from; i < numMoves; i++) {
+            if (moves[i] == edge) {
+                moves[i] = moves[from];
+                moves[from] = edge;
+                return from + 1;
+            }
+        }
+        return from;
+    }
+
+    /* Move the given edge to the front of the first numMoves edges, if it
+     * is one of them
+     */
+    private void moveToFront(int[] moves, int numMoves, int edge) {
+        if (edge == TranspositionTable.NO_MOVE) {
+            return;
+        }
+
+        for (int i = 0; i < numMoves; i++) {
+            if (moves[i] == edge) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = edge;
+                return;
+            }
+        }
+    }
+
+    /* Sort the edges from index first up to numMoves in place in the order
+     * of decreasing history heuristic score of the player, using scores as
+     * scratch space. Edges with equal scores keep their order
+     */
+    private void sortMoveBasedOnHistory(int[] moves, int first, int numMoves,
+        long[] scores, int player) {
+        long[] history = this.historyScores[player];
+
+        for (int i = first; i < numMoves; i++) {
+            scores[i] = history[moves[i]];
+        }
+
+        // Insertion sort, there are only ever a few dozen safe moves
+        for (int i = first + 1; i < numMoves; i++) {
+            int move = moves[i];
+            long score = scores[i];
+            int j = i - 1;
+
+            while (j >= first && scores[j] < score) {
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+
+}
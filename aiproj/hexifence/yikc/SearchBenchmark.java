@@ -0,0 +1,300 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import aiproj.hexifence.*;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/*
+ *  SearchBenchmark class
+ *  Times the searches to a fixed depth on the same positions with a growing
+ *  number of threads, and prints the time to depth, the nodes searched per
+ *  second, the speedup over one thread of every parallel mode and the
+ *  share of cut-offs made by the first move searched, a measure of how
+ *  well the moves are ordered. Then times every search algorithm with one
+ *  thread on the same positions, and prints how many of them it chose the
+ *  same move on as alpha-beta, and the default search with aspiration
+ *  windows of growing width, and prints how often it searched again.
+ *  Root splitting cannot run MTD(f), so the parallel modes are timed with
+ *  the default search only.
+ *
+ *  Usage: java aiproj.hexifence.yikc.SearchBenchmark
+ *             [dimension] [safe edges] [depth] [max threads] [positions]
+ *             [board file]
+ *
+ *  Positions are reached by random safe moves from an empty board, or from
+ *  the board in the file (such as testInput.txt, whose dimension is used
+ *  instead), until the given number of safe edges is left, from a fixed
+ *  seed so every run searches the same positions
+ */
+public class SearchBenchmark implements Piece {
+
+    private static final long SEED = 2016;
+
+    // Large enough that no search runs out of time before its depth
+    private static final long NO_TIME_LIMIT = 1000L * 60 * 60;
+
+    // Indexes of the counts searchAll returns
+    private static final int NODES = 0;
+    private static final int CUTOFFS = 1;
+    private static final int FIRST_MOVE_CUTOFFS = 2;
+    private static final int ASPIRATION_SEARCHES = 3;
+    private static final int RE_SEARCHES = 4;
+
+    private static final int[] ASPIRATION_WIDTHS = {0, 1, 2, 4};
+
+    public static void main(String[] args) throws IOException {
+        int dimension = intArg(args, 0, 3);
+        int safeEdges = intArg(args, 1, 20);
+        int depth = intArg(args, 2, 7);
+        int maxThreads = intArg(args, 3, 8);
+        int numPositions = intArg(args, 4, 4);
+
+        BitBoard startBoard = (args.length > 5) ? readBoard(args[5]) :
+            new BitBoard(dimension);
+        dimension = startBoard.getBoardDimension();
+        ArrayList<BitBoard> positions = generatePositions(startBoard,
+            safeEdges, numPositions);
+        numPositions = positions.size();
+
+        System.out.println("Dimension " + dimension + ", " + safeEdges +
+            " safe edges, depth " + depth + ", " + numPositions +
+            " positions, " + Runtime.getRuntime().availableProcessors() +
+            " processors");
+        System.out.println(String.format(
+            "%-10s %7s %12s %12s %10s %8s %10s", "mode", "threads",
+            "ms to depth", "nodes", "knodes/s", "speedup", "first cut"));
+
+        int[] modes = {SearchConfig.ROOT_SPLIT, SearchConfig.LAZY_SMP};
+        String[] modeNames = {"rootsplit", "lazysmp"};
+
+        // Let the JIT compile the search before anything is timed
+        searchAll(positions, newConfig(depth, 1, SearchConfig.ROOT_SPLIT),
+            null);
+
+        for (int m = 0; m < modes.length; m++) {
+            double oneThreadMillis = 0;
+
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                SearchConfig config = newConfig(depth, threads, modes[m]);
+
+                long start = System.nanoTime();
+                long[] counts = searchAll(positions, config, null);
+                double millis = (System.nanoTime() - start) / 1e6;
+                long nodes = counts[NODES];
+
+                if (threads == 1) {
+                    oneThreadMillis = millis;
+                }
+                System.out.println(String.format(
+                    "%-10s %7d %12.1f %12d %10.1f %8.2f %9.1f%%",
+                    modeNames[m], threads, millis, nodes,
+                    nodes / Math.max(millis, 1e-3),
+                    oneThreadMillis / Math.max(millis, 1e-3),
+                    100.0 * counts[FIRST_MOVE_CUTOFFS] /
+                    Math.max(counts[CUTOFFS], 1)));
+            }
+        }
+
+        System.out.println();
+        System.out.println(String.format("%-10s %12s %12s %10s %10s",
+            "algorithm", "ms to depth", "nodes", "first cut", "same move"));
+
+        int[] algorithms = {SearchConfig.ALPHA_BETA, SearchConfig.PVS,
+            SearchConfig.MTDF};
+        String[] algorithmNames = {"alphabeta", "pvs", "mtdf"};
+        ArrayList<Move> alphaBetaMoves = null;
+
+        for (int a = 0; a < algorithms.length; a++) {
+            SearchConfig config = newConfig(depth, 1, SearchConfig.ROOT_SPLIT);
+            ArrayList<Move> bestMoves = new ArrayList<Move>();
+            config.setAlgorithm(algorithms[a]);
+
+            long start = System.nanoTime();
+            long[] counts = searchAll(positions, config, bestMoves);
+            double millis = (System.nanoTime() - start) / 1e6;
+
+            if (alphaBetaMoves == null) {
+                alphaBetaMoves = bestMoves;
+            }
+            System.out.println(String.format(
+                "%-10s %12.1f %12d %9.1f%% %6d/%d", algorithmNames[a], millis,
+                counts[NODES], 100.0 * counts[FIRST_MOVE_CUTOFFS] /
+                Math.max(counts[CUTOFFS], 1),
+                countSameMoves(alphaBetaMoves, bestMoves), bestMoves.size()));
+        }
+
+        System.out.println();
+        System.out.println(String.format("%-10s %12s %12s %12s",
+            "aspiration", "ms to depth", "nodes", "re-searches"));
+
+        for (int width: ASPIRATION_WIDTHS) {
+            SearchConfig config = newConfig(depth, 1, SearchConfig.ROOT_SPLIT);
+            config.setAspirationWidth(width);
+
+            long start = System.nanoTime();
+            long[] counts = searchAll(positions, config, null);
+            double millis = (System.nanoTime() - start) / 1e6;
+
+            System.out.println(String.format("%-10s %12.1f %12d %8d/%d",
+                (width == 0) ? "off" : "+-" + width, millis, counts[NODES],
+                counts[RE_SEARCHES], counts[ASPIRATION_SEARCHES]));
+        }
+
+        // Every search shares the one cache, so this covers all the runs
+        System.out.println("Endgame cache: " + EndgameCache.getShared());
+    }
+
+    private static SearchConfig newConfig(int depth, int threads,
+        int mode) {
+        SearchConfig config = new SearchConfig();
+
+        config.setMoveTimeMillis(NO_TIME_LIMIT);
+        config.setGameTimeMillis(NO_TIME_LIMIT);
+        config.setMaxDepth(depth);
+        config.setThreads(threads);
+        config.setParallelMode(mode);
+        return config;
+    }
+
+    /* Search every position with a new search, so none of them starts with
+     * a filled transposition table.
+     *
+     * The best move of every position is added to bestMoves unless it is
+     * null.
+     *
+     * Return the number of nodes searched, of cut-offs, of cut-offs by the
+     * first move, of iterations searched with an aspiration window and of
+     * searches again, indexed by NODES, CUTOFFS, FIRST_MOVE_CUTOFFS,
+     * ASPIRATION_SEARCHES and RE_SEARCHES
+     */
+    private static long[] searchAll(ArrayList<BitBoard> positions,
+        SearchConfig config, ArrayList<Move> bestMoves) {
+        long[] counts = new long[5];
+
+        for (BitBoard position: positions) {
+            BitBoard board = new BitBoard(position);
+            MoveSearch search = config.newSearch(board,
+                board.getSideToMove());
+
+            Move bestMove = search.findBestMove();
+            search.close();
+            if (bestMoves != null) {
+                bestMoves.add(bestMove);
+            }
+            counts[NODES] += search.getNodes();
+            counts[CUTOFFS] += search.getCutoffs();
+            counts[FIRST_MOVE_CUTOFFS] += search.getFirstMoveCutoffs();
+            counts[ASPIRATION_SEARCHES] += search.getAspirationSearches();
+            counts[RE_SEARCHES] += search.getReSearches();
+        }
+        return counts;
+    }
+
+    /* Return the given number of positions with safeEdges safe edges left,
+     * reached from the start board, or the start board alone if it has no
+     * more safe edges than that
+     */
+    private static ArrayList<BitBoard> generatePositions(BitBoard start,
+        int safeEdges, int numPositions) {
+        ArrayList<BitBoard> positions = new ArrayList<BitBoard>();
+        Random random = new Random(SEED);
+
+        if (start.countSafeEdges() <= safeEdges) {
+            positions.add(start);
+            return positions;
+        }
+
+        while (positions.size() < numPositions) {
+            BitBoard board = new BitBoard(start);
+            ArrayList<Point> safe = board.getSafeEdges();
+
+            while (safe.size() > safeEdges) {
+                Point point = safe.get(random.nextInt(safe.size()));
+                board.makeMove(board.getEdgeIndex(point),
+                    board.getSideToMove());
+                safe = board.getSafeEdges();
+            }
+
+            // Positions with too few safe edges left to search are skipped
+            if (safe.size() == safeEdges) {
+                positions.add(board);
+            }
+        }
+        return positions;
+    }
+
+    /* Read a board in the format Board prints it in, the dimension on the
+     * first line and then a row of points per line. The order its edges
+     * were taken in is not known, so the blue and red edges are taken in
+     * turn, blue first, and the cells they complete go to whoever took the
+     * completing edge
+     */
+    private static BitBoard readBoard(String path) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(path));
+
+        try {
+            BitBoard board = new BitBoard(
+                Integer.parseInt(reader.readLine().trim()));
+            int boardSize = board.getLayout().getBoardSize();
+            ArrayList<Integer> blueEdges = new ArrayList<Integer>();
+            ArrayList<Integer> redEdges = new ArrayList<Integer>();
+
+            for (int row = 0; row < boardSize; row++) {
+                String[] points = reader.readLine().trim().split("\\s+");
+
+                for (int col = 0; col < boardSize; col++) {
+                    char point = points[col].charAt(0);
+                    int edge = board.getLayout().getEdgeIndex(row, col);
+
+                    if (point == Board.BLUE_EDGE) {
+                        blueEdges.add(edge);
+                    } else if (point == Board.RED_EDGE) {
+                        redEdges.add(edge);
+                    }
+                }
+            }
+
+            for (int i = 0; i < Math.max(blueEdges.size(), redEdges.size());
+                i++) {
+                if (i < blueEdges.size()) {
+                    board.makeMove(blueEdges.get(i), BLUE);
+                }
+                if (i < redEdges.size()) {
+                    board.makeMove(redEdges.get(i), RED);
+                }
+            }
+            return board;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /* Return the number of positions both lists chose the same move on
+     */
+    private static int countSameMoves(ArrayList<Move> moves,
+        ArrayList<Move> otherMoves) {
+        int numSame = 0;
+
+        for (int i = 0; i < moves.size(); i++) {
+            if (moves.get(i).Row == otherMoves.get(i).Row &&
+                moves.get(i).Col == otherMoves.get(i).Col) {
+                numSame++;
+            }
+        }
+        return numSame;
+    }
+
+    private static int intArg(String[] args, int i, int defaultValue) {
+        return (args.length > i) ? Integer.parseInt(args[i]) : defaultValue;
+    }
+
+}
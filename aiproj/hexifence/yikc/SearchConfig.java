@@ -0,0 +1,353 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+/* SearchConfig class
+ * Settings of the search players. The referee creates players by class name,
+ * so settings are read from system properties and can be given on the
+ * command line, e.g.
+ *   java -Dyikc.moveTime=500 aiproj.hexifence.Referee 3 ...
+ */
+public class SearchConfig {
+
+    // Parallel modes
+    public static final int ROOT_SPLIT = 0;
+    public static final int LAZY_SMP = 1;
+
+    // Search algorithms
+    public static final int ALPHA_BETA = 0;
+    public static final int PVS = 1;
+    public static final int MTDF = 2;
+
+    // Parallel modes of the Monte Carlo tree search
+    public static final int MCTS_TREE = 0;
+    public static final int MCTS_ROOT = 1;
+
+    // Ways yikc picks its moves above the search threshold
+    public static final int RANDOM_OPENING = 0;
+    public static final int MCTS_OPENING = 1;
+
+    // Time budget of one move and of all the moves of a game, in ms
+    private long moveTimeMillis;
+    private long gameTimeMillis;
+
+    // Number of safe edges left at or below which the search is used
+    private int searchThreshold;
+
+    private int ttEntries;
+
+    // Size of the endgame value cache shared by every search in the JVM
+    private int endgameCacheEntries;
+
+    // File of the endgame tablebase to map, or null for none
+    private String tablebasePath;
+
+    // Number of edges left at or below which the exact solver is tried
+    // first, 0 to never use it, and the file of every position solved
+    // offline or null
+    private int exactEdges;
+    private String solvedTablePath;
+
+    // Number of threads searching a move, the search is sequential and
+    // deterministic with one
+    private int threads;
+
+    // Parallel search run with more than one thread
+    private int parallelMode;
+
+    // Deepest iteration of the search, for benchmarks to a fixed depth
+    private int maxDepth;
+
+    // Algorithm every iteration of the search runs
+    private int algorithm;
+
+    // Half the width of the aspiration window around the last iteration's
+    // score, 0 to search every iteration with a full window, and the
+    // factor the width grows by every time a search falls outside it, 1 or
+    // less to open that side of the window fully at once
+    private int aspirationWidth;
+    private int aspirationGrowth;
+
+    // Exploration constant of the Monte Carlo tree search's UCT, the
+    // number of visits that lost a thread adds to every node it walks
+    // through in a shared tree, and its parallel mode
+    private double mctsExploration;
+    private int virtualLoss;
+    private int mctsParallelMode;
+
+    // How yikc picks its moves while too many safe edges are left to search
+    private int opening;
+
+    public SearchConfig() {
+        this.moveTimeMillis = 1000;
+        this.gameTimeMillis = 60000;
+        this.searchThreshold = 24;
+        this.ttEntries = 1 << 19;
+        this.endgameCacheEntries = 1 << 16;
+        this.tablebasePath = null;
+        this.exactEdges = 20;
+        this.solvedTablePath = null;
+        this.threads = 1;
+        this.parallelMode = ROOT_SPLIT;
+        this.maxDepth = Integer.MAX_VALUE;
+        this.algorithm = PVS;
+        this.aspirationWidth = 2;
+        this.aspirationGrowth = 4;
+        this.mctsExploration = 0.5;
+        this.virtualLoss = 1;
+        this.mctsParallelMode = MCTS_TREE;
+        this.opening = MCTS_OPENING;
+    }
+
+    /* Return the default settings, overridden by any system properties
+     * that are set
+     */
+    public static SearchConfig fromSystemProperties() {
+        SearchConfig config = new SearchConfig();
+
+        config.moveTimeMillis = Long.getLong("yikc.moveTime",
+            config.moveTimeMillis);
+        config.gameTimeMillis = Long.getLong("yikc.gameTime",
+            config.gameTimeMillis);
+        config.searchThreshold = Integer.getInteger("yikc.searchThreshold",
+            config.searchThreshold);
+        config.ttEntries = Integer.getInteger("yikc.ttEntries",
+            config.ttEntries);
+        config.endgameCacheEntries = Integer.getInteger(
+            "yikc.endgameCacheEntries", config.endgameCacheEntries);
+        config.tablebasePath = System.getProperty("yikc.tablebase",
+            config.tablebasePath);
+        config.exactEdges = Integer.getInteger("yikc.exactEdges",
+            config.exactEdges);
+        config.solvedTablePath = System.getProperty("yikc.solvedTable",
+            config.solvedTablePath);
+        config.threads = Integer.getInteger("yikc.threads", config.threads);
+        config.maxDepth = Integer.getInteger("yikc.maxDepth",
+            config.maxDepth);
+
+        config.aspirationWidth = Integer.getInteger("yikc.aspirationWidth",
+            config.aspirationWidth);
+        config.aspirationGrowth = Integer.getInteger("yikc.aspirationGrowth",
+            config.aspirationGrowth);
+
+        String exploration = System.getProperty("yikc.mctsExploration");
+        if (exploration != null) {
+            config.mctsExploration = Double.parseDouble(exploration);
+        }
+        config.virtualLoss = Integer.getInteger("yikc.virtualLoss",
+            config.virtualLoss);
+
+        String mode = System.getProperty("yikc.parallel");
+        if ("rootsplit".equals(mode)) {
+            config.parallelMode = ROOT_SPLIT;
+        } else if ("lazysmp".equals(mode)) {
+            config.parallelMode = LAZY_SMP;
+        } else if (mode != null) {
+            throw new IllegalArgumentException(
+                "yikc.parallel must be rootsplit or lazysmp, not " + mode);
+        }
+
+        String algorithm = System.getProperty("yikc.algorithm");
+        if ("alphabeta".equals(algorithm)) {
+            config.algorithm = ALPHA_BETA;
+        } else if ("pvs".equals(algorithm)) {
+            config.algorithm = PVS;
+        } else if ("mtdf".equals(algorithm)) {
+            config.algorithm = MTDF;
+        } else if (algorithm != null) {
+            throw new IllegalArgumentException("yikc.algorithm must be " +
+                "alphabeta, pvs or mtdf, not " + algorithm);
+        }
+
+        String mctsMode = System.getProperty("yikc.mctsParallel");
+        if ("tree".equals(mctsMode)) {
+            config.mctsParallelMode = MCTS_TREE;
+        } else if ("root".equals(mctsMode)) {
+            config.mctsParallelMode = MCTS_ROOT;
+        } else if (mctsMode != null) {
+            throw new IllegalArgumentException(
+                "yikc.mctsParallel must be tree or root, not " + mctsMode);
+        }
+
+        String opening = System.getProperty("yikc.opening");
+        if ("random".equals(opening)) {
+            config.opening = RANDOM_OPENING;
+        } else if ("mcts".equals(opening)) {
+            config.opening = MCTS_OPENING;
+        } else if (opening != null) {
+            throw new IllegalArgumentException(
+                "yikc.opening must be random or mcts, not " + opening);
+        }
+
+        return config;
+    }
+
+    public long getMoveTimeMillis() {
+        return this.moveTimeMillis;
+    }
+
+    public void setMoveTimeMillis(long moveTimeMillis) {
+        this.moveTimeMillis = moveTimeMillis;
+    }
+
+    public long getGameTimeMillis() {
+        return this.gameTimeMillis;
+    }
+
+    public void setGameTimeMillis(long gameTimeMillis) {
+        this.gameTimeMillis = gameTimeMillis;
+    }
+
+    public int getSearchThreshold() {
+        return this.searchThreshold;
+    }
+
+    public void setSearchThreshold(int searchThreshold) {
+        this.searchThreshold = searchThreshold;
+    }
+
+    public int getTtEntries() {
+        return this.ttEntries;
+    }
+
+    public void setTtEntries(int ttEntries) {
+        this.ttEntries = ttEntries;
+    }
+
+    public int getEndgameCacheEntries() {
+        return this.endgameCacheEntries;
+    }
+
+    public void setEndgameCacheEntries(int endgameCacheEntries) {
+        this.endgameCacheEntries = endgameCacheEntries;
+    }
+
+    public String getTablebasePath() {
+        return this.tablebasePath;
+    }
+
+    public void setTablebasePath(String tablebasePath) {
+        this.tablebasePath = tablebasePath;
+    }
+
+    public int getExactEdges() {
+        return this.exactEdges;
+    }
+
+    public void setExactEdges(int exactEdges) {
+        this.exactEdges = exactEdges;
+    }
+
+    public String getSolvedTablePath() {
+        return this.solvedTablePath;
+    }
+
+    public void setSolvedTablePath(String solvedTablePath) {
+        this.solvedTablePath = solvedTablePath;
+    }
+
+    public int getThreads() {
+        return this.threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getParallelMode() {
+        return this.parallelMode;
+    }
+
+    public void setParallelMode(int parallelMode) {
+        this.parallelMode = parallelMode;
+    }
+
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public int getAlgorithm() {
+        return this.algorithm;
+    }
+
+    public void setAlgorithm(int algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public int getAspirationWidth() {
+        return this.aspirationWidth;
+    }
+
+    public void setAspirationWidth(int aspirationWidth) {
+        this.aspirationWidth = aspirationWidth;
+    }
+
+    public int getAspirationGrowth() {
+        return this.aspirationGrowth;
+    }
+
+    public void setAspirationGrowth(int aspirationGrowth) {
+        this.aspirationGrowth = aspirationGrowth;
+    }
+
+    public double getMctsExploration() {
+        return this.mctsExploration;
+    }
+
+    public void setMctsExploration(double mctsExploration) {
+        this.mctsExploration = mctsExploration;
+    }
+
+    public int getVirtualLoss() {
+        return this.virtualLoss;
+    }
+
+    public void setVirtualLoss(int virtualLoss) {
+        this.virtualLoss = virtualLoss;
+    }
+
+    public int getMctsParallelMode() {
+        return this.mctsParallelMode;
+    }
+
+    public void setMctsParallelMode(int mctsParallelMode) {
+        this.mctsParallelMode = mctsParallelMode;
+    }
+
+    public int getOpening() {
+        return this.opening;
+    }
+
+    public void setOpening(int opening) {
+        this.opening = opening;
+    }
+
+    /* Return a new search of the board for the player, run by as many
+     * threads as are set.
+     *
+     * Root splitting searches each root move on its own, which MTD(f)
+     * cannot, so MTD(f) on more than one thread needs Lazy SMP
+     */
+    public MoveSearch newSearch(BitBoard board, int player) {
+        if (this.threads > 1 && this.parallelMode == ROOT_SPLIT &&
+            this.algorithm == MTDF) {
+            throw new IllegalArgumentException("yikc.algorithm=mtdf needs " +
+                "yikc.parallel=lazysmp when yikc.threads is more than 1");
+        }
+
+        if (this.threads <= 1) {
+            return new Search(board, player, this);
+        } else if (this.parallelMode == LAZY_SMP) {
+            return new LazySmpSearch(board, player, this);
+        }
+        return new ParallelSearch(board, player, this);
+    }
+
+}
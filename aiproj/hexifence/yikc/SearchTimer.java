@@ -0,0 +1,60 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+/* SearchTimer class
+ * Keeps the time of one move within its own budget and within a fair share
+ * of what is left of the game's budget
+ */
+public class SearchTimer {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private long moveBudget;
+    private long gameTimeLeft;
+
+    private long moveStart;
+    private long deadline;
+
+    public SearchTimer(long moveTimeMillis, long gameTimeMillis) {
+        this.moveBudget = moveTimeMillis * NANOS_PER_MILLI;
+        this.gameTimeLeft = gameTimeMillis * NANOS_PER_MILLI;
+    }
+
+    /* Start timing a move, given an estimate of the number of moves this
+     * player still has to make in the game
+     */
+    public void startMove(int movesLeft) {
+        long share = this.gameTimeLeft / Math.max(1, movesLeft);
+
+        this.moveStart = System.nanoTime();
+        this.deadline = this.moveStart + Math.max(0,
+            Math.min(this.moveBudget, share));
+    }
+
+    /* Stop timing the move and charge it to the game's budget
+     */
+    public void stopMove() {
+        this.gameTimeLeft -= System.nanoTime() - this.moveStart;
+    }
+
+    public boolean isTimeUp() {
+        return System.nanoTime() >= this.deadline;
+    }
+
+    /* Return true once more than half the move's time is used. A new
+     * iteration started after that would most likely not finish
+     */
+    public boolean isPastHalfTime() {
+        long now = System.nanoTime();
+        return now - this.moveStart >= (this.deadline - this.moveStart) / 2;
+    }
+
+    public long getElapsedMillis() {
+        return (System.nanoTime() - this.moveStart) / NANOS_PER_MILLI;
+    }
+
+}
@@ -0,0 +1,284 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/*
+ *  SolvedTable class
+ *  Exact value of every position of a board of up to 30 edges, such as
+ *  dimension 2, solved offline and kept in a file:
+ *
+ *    java -Xmx1g aiproj.hexifence.yikc.SolvedTable [dimension] [file]
+ *
+ *  A position's value to the player to move only depends on the set of
+ *  edges taken, so every position is indexed by that set as a bitmask and
+ *  solved retrograde, from every edge taken down to none: each set is worth
+ *  the best of its children, which all have one more bit and so a larger
+ *  index. A value needs four bits, so two positions share every byte and a
+ *  dimension-2 table takes 512 MB. Folding symmetric positions together
+ *  would need a rank of the canonical sets, which costs more to compute
+ *  than a lookup.
+ *
+ *  Players open it with -Dyikc.solvedTable=file; it is mapped into memory
+ *  read-only rather than read into the heap, so the JVMs of a tournament
+ *  all share the same pages, and only the pages of the positions a game
+ *  reaches are ever read. Lookups only use absolute reads of the mapped
+ *  buffer and so can be made by any thread
+ */
+public class SolvedTable {
+
+    private static final int MAGIC = 0x48585354;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    // Positions are indexed by an int bitmask of the edges taken
+    private static final int MAX_EDGES = 30;
+
+    // Stored values are biased to fit a nibble
+    private static final int VALUE_BIAS = 8;
+
+    private static SolvedTable shared;
+    private static boolean sharedOpened;
+
+    private ByteBuffer buffer;
+    private int boardDimension;
+    private BoardLayout layout;
+
+    private SolvedTable(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a table of solved " +
+                "positions");
+        }
+
+        this.buffer = buffer;
+        this.boardDimension = buffer.getInt(8);
+        this.layout = BoardLayout.forDimension(this.boardDimension);
+        if (buffer.getInt(12) != this.layout.getNumEdges() ||
+            buffer.capacity() != HEADER_BYTES +
+            tableBytes(this.layout.getNumEdges())) {
+            throw new IllegalArgumentException("Table of solved positions " +
+                "does not match the board of dimension " +
+                this.boardDimension);
+        }
+    }
+
+    /* Map the table in a file into memory
+     */
+    public static SolvedTable open(String path) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path),
+            StandardOpenOption.READ);
+
+        try {
+            // The mapping stays valid once the channel is closed
+            MappedByteBuffer buffer = channel.map(
+                FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SolvedTable(buffer);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /* Return the table named by the yikc.solvedTable property, opened once
+     * for every player in the JVM, or null if none is set
+     */
+    public static synchronized SolvedTable getShared() {
+        if (!sharedOpened) {
+            String path = SearchConfig.fromSystemProperties()
+                .getSolvedTablePath();
+
+            sharedOpened = true;
+            if (path != null) {
+                try {
+                    shared = open(path);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException(
+                        "Cannot open table of solved positions " + path, e);
+                }
+            }
+        }
+        return shared;
+    }
+
+    public int getBoardDimension() {
+        return this.boardDimension;
+    }
+
+    /* Return the number of cells the player to move captures over the rest
+     * of the game less those the opponent captures, with both playing their
+     * best, for the board's edges taken
+     */
+    public int getValue(BitBoard board) {
+        return this.getValue(takenEdges(board));
+    }
+
+    /* Return an edge of the board that keeps its value to the player to
+     * move, or BoardLayout.NO_EDGE if no edge is left
+     */
+    public int getBestEdge(BitBoard board) {
+        int taken = takenEdges(board);
+        int untaken = ~taken & fullMask(this.layout.getNumEdges());
+        int bestValue = Integer.MIN_VALUE;
+        int bestEdge = BoardLayout.NO_EDGE;
+
+        while (untaken != 0) {
+            int edge = Integer.numberOfTrailingZeros(untaken);
+            int child = taken | (1 << edge);
+            int numCaptured = this.countCaptured(edge, child);
+            int value = (numCaptured > 0) ?
+                numCaptured + this.getValue(child) : -this.getValue(child);
+
+            if (value > bestValue) {
+                bestValue = value;
+                bestEdge = edge;
+            }
+            untaken &= untaken - 1;
+        }
+        return bestEdge;
+    }
+
+    private int getValue(int taken) {
+        int packed = this.buffer.get(HEADER_BYTES + (taken >>> 1));
+        return nibble(packed, taken) - VALUE_BIAS;
+    }
+
+    /* Return the number of cells of the edge completed by the edges taken
+     */
+    private int countCaptured(int edge, int taken) {
+        int numCaptured = 0;
+
+        for (int cell: this.layout.getEdgeCells(edge)) {
+            int sides = cellMask(this.layout, cell);
+            if ((taken & sides) == sides) {
+                numCaptured++;
+            }
+        }
+        return numCaptured;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int boardDimension = (args.length > 0) ? Integer.parseInt(args[0]) :
+            2;
+        String path = (args.length > 1) ? args[1] : "solved2.tb";
+
+        BoardLayout layout = BoardLayout.forDimension(boardDimension);
+        if (layout.getNumEdges() > MAX_EDGES) {
+            throw new IllegalArgumentException("Boards of dimension " +
+                boardDimension + " have " + layout.getNumEdges() +
+                " edges, tables of solved positions at most " + MAX_EDGES);
+        }
+
+        long start = System.nanoTime();
+        byte[] table = generate(layout);
+        FileChannel channel = FileChannel.open(Paths.get(path),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(boardDimension)
+                .putInt(layout.getNumEdges());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+
+            ByteBuffer values = ByteBuffer.wrap(table);
+            while (values.hasRemaining()) {
+                channel.write(values);
+            }
+        } finally {
+            channel.close();
+        }
+
+        SolvedTable solved = open(path);
+        System.out.println("Wrote " + (1L << layout.getNumEdges()) +
+            " positions of dimension " + boardDimension + " to " + path +
+            " in " + (System.nanoTime() - start) / 1000000 + " ms, " +
+            "worth " + solved.getValue(0) + " to the first player");
+    }
+
+    /* Solve every set of edges taken of the layout, from the largest index
+     * down, so the children of a set are solved before it.
+     *
+     * Return the values packed two to a byte
+     */
+    private static byte[] generate(BoardLayout layout) {
+        int numEdges = layout.getNumEdges();
+        int full = fullMask(numEdges);
+        byte[] table = new byte[tableBytes(numEdges)];
+
+        // Sides of the one or two cells of every edge, as bitmasks
+        int[] firstSides = new int[numEdges];
+        int[] secondSides = new int[numEdges];
+        for (int e = 0; e < numEdges; e++) {
+            int[] cells = layout.getEdgeCells(e);
+            firstSides[e] = cellMask(layout, cells[0]);
+            // A border edge's missing cell is never completed
+            secondSides[e] = (cells.length > 1) ?
+                cellMask(layout, cells[1]) : ~0;
+        }
+
+        for (int taken = full; taken >= 0; taken--) {
+            int untaken = ~taken & full;
+            int best = (untaken == 0) ? 0 : Integer.MIN_VALUE;
+
+            while (untaken != 0) {
+                int edge = Integer.numberOfTrailingZeros(untaken);
+                int child = taken | (1 << edge);
+                int value = nibble(table[child >>> 1], child) - VALUE_BIAS;
+                int numCaptured =
+                    (((child & firstSides[edge]) == firstSides[edge]) ?
+                    1 : 0) +
+                    (((child & secondSides[edge]) == secondSides[edge]) ?
+                    1 : 0);
+
+                value = (numCaptured > 0) ? numCaptured + value : -value;
+                best = Math.max(best, value);
+                untaken &= untaken - 1;
+            }
+
+            // Even indexes take the low nibble of their byte
+            int shift = (taken & 1) << 2;
+            table[taken >>> 1] |= (byte) ((best + VALUE_BIAS) << shift);
+        }
+        return table;
+    }
+
+    private static int nibble(int packed, int taken) {
+        return (packed >>> ((taken & 1) << 2)) & 0xf;
+    }
+
+    private static int cellMask(BoardLayout layout, int cell) {
+        int sides = 0;
+
+        for (int edge: layout.getCellEdges(cell)) {
+            sides |= 1 << edge;
+        }
+        return sides;
+    }
+
+    private static int fullMask(int numEdges) {
+        return (1 << numEdges) - 1;
+    }
+
+    private static int tableBytes(int numEdges) {
+        return Math.max(1, 1 << (numEdges - 1));
+    }
+
+    /* Return the edges taken on the board as a bitmask
+     */
+    private static int takenEdges(BitBoard board) {
+        return (int) ~board.getUncapturedWord(0) &
+            fullMask(board.getLayout().getNumEdges());
+    }
+
+}
@@ -0,0 +1,177 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+/* TranspositionTable class
+ * Fixed-size table of previously searched positions, keyed by a 64-bit
+ * position hash. Entries live in two parallel long[] arrays, the key and a
+ * packed data word holding the score, best move, depth, bound type and the
+ * search generation that stored it.
+ *
+ * Threads may share one table without locks. A slot keeps the key XORed with
+ * the data word, so a slot torn by two threads writing it at once no longer
+ * matches its key and reads as empty. Entries are read as one data word,
+ * which is then decoded, so a slot changing while it is used cannot mix two
+ * entries.
+ *
+ * The table has a power-of-two number of buckets, of as many slots as the
+ * replacement policy uses:
+ *   DEPTH_PREFERRED : one slot, only replaced by a deeper search or once the
+ *                     entry is left over from a previous search
+ *   ALWAYS_REPLACE  : one slot, always replaced
+ *   TWO_TIER        : a depth-preferred slot plus an always-replace slot
+ */
+public class TranspositionTable {
+
+    // Bound types
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+
+    // Replacement policies
+    public static final int DEPTH_PREFERRED = 0;
+    public static final int ALWAYS_REPLACE = 1;
+    public static final int TWO_TIER = 2;
+
+    // A slot with no entry, and a probe that found none
+    public static final long NO_ENTRY = 0L;
+    public static final int NO_MOVE = -1;
+    public static final int MAX_DEPTH = 0xFF;
+
+    // Layout of the data word
+    private static final int MOVE_SHIFT = 32;
+    private static final int DEPTH_SHIFT = 48;
+    private static final int BOUND_SHIFT = 56;
+    private static final int GENERATION_SHIFT = 59;
+    private static final long MOVE_MASK = 0xFFFFL;
+    private static final long DEPTH_MASK = 0xFFL;
+    private static final long BOUND_MASK = 0x3L;
+    private static final long GENERATION_MASK = 0x1FL;
+
+    // Set in every stored entry, so no stored data word is NO_ENTRY
+    private static final long USED = 1L << 58;
+
+    private long[] keys;
+    private long[] data;
+    private int bucketMask;
+    private int slotsPerBucket;
+    private int policy;
+    private int generation;
+
+    /* Create a table with the given number of entries, rounded down to a
+     * power of two
+     */
+    public TranspositionTable(int numEntries, int policy) {
+        this.slotsPerBucket = (policy == TWO_TIER) ? 2 : 1;
+
+        int numBuckets = Integer.highestOneBit(
+            Math.max(1, numEntries / this.slotsPerBucket));
+
+        this.keys = new long[numBuckets * this.slotsPerBucket];
+        this.data = new long[numBuckets * this.slotsPerBucket];
+        this.bucketMask = numBuckets - 1;
+        this.policy = policy;
+        this.generation = 0;
+    }
+
+    /* Start a new search. Entries from earlier searches are kept, but may
+     * be replaced by the depth-preferred policy regardless of their depth
+     */
+    public void newSearch() {
+        this.generation = (int) ((this.generation + 1) & GENERATION_MASK);
+    }
+
+    public void clear() {
+        for (int i = 0; i < this.keys.length; i++) {
+            this.keys[i] = 0;
+            this.data[i] = 0;
+        }
+    }
+
+    /* Return the data word of the position's entry, or NO_ENTRY if it is
+     * not in the table
+     */
+    public long probe(long key) {
+        int slot = this.bucketOf(key);
+
+        for (int i = 0; i < this.slotsPerBucket; i++, slot++) {
+            long entry = this.data[slot];
+            if (entry != NO_ENTRY && (this.keys[slot] ^ entry) == key) {
+                return entry;
+            }
+        }
+        return NO_ENTRY;
+    }
+
+    public static int getScore(long entry) {
+        return (int) entry;
+    }
+
+    /* Return the best move of the entry, or NO_MOVE
+     */
+    public static int getMove(long entry) {
+        return (int) ((entry >>> MOVE_SHIFT) & MOVE_MASK) - 1;
+    }
+
+    public static int getDepth(long entry) {
+        return (int) ((entry >>> DEPTH_SHIFT) & DEPTH_MASK);
+    }
+
+    public static int getBound(long entry) {
+        return (int) ((entry >>> BOUND_SHIFT) & BOUND_MASK);
+    }
+
+    /* Store the result of searching a position
+     */
+    public void store(long key, int depth, int bound, int score, int move) {
+        int bucket = this.bucketOf(key);
+        int slot = bucket;
+        long first = this.data[bucket];
+        boolean sameKey = (this.keys[bucket] ^ first) == key;
+
+        if (this.policy == TWO_TIER) {
+            // Replace the depth-preferred slot when it holds this position
+            // or it is beaten, otherwise fall back to the always-replace slot
+            if (!sameKey && !this.canReplace(first, depth)) {
+                slot = bucket + 1;
+            } else if (!sameKey && first != NO_ENTRY) {
+                // Demote the beaten entry rather than losing it
+                this.keys[bucket + 1] = this.keys[bucket];
+                this.data[bucket + 1] = first;
+            }
+        } else if (this.policy == DEPTH_PREFERRED) {
+            if (!sameKey && !this.canReplace(first, depth)) {
+                return;
+            }
+        }
+
+        depth = Math.min(Math.max(depth, 0), MAX_DEPTH);
+        long entry = (score & 0xFFFFFFFFL) |
+            (((move + 1) & MOVE_MASK) << MOVE_SHIFT) |
+            ((long) depth << DEPTH_SHIFT) |
+            ((long) bound << BOUND_SHIFT) |
+            ((long) this.generation << GENERATION_SHIFT) | USED;
+        this.keys[slot] = key ^ entry;
+        this.data[slot] = entry;
+    }
+
+    /* Return true if an entry of the given depth may replace the entry in
+     * the depth-preferred slot
+     */
+    private boolean canReplace(long entry, int depth) {
+        return entry == NO_ENTRY ||
+            ((entry >>> GENERATION_SHIFT) & GENERATION_MASK) !=
+                this.generation ||
+            depth >= getDepth(entry);
+    }
+
+    private int bucketOf(long key) {
+        // Fold the upper half in so any 64-bit hash spreads over buckets
+        int h = (int) (key ^ (key >>> 32));
+        return (h & this.bucketMask) * this.slotsPerBucket;
+    }
+
+}
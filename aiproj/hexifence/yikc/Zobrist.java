@@ -0,0 +1,130 @@
+/* Authors:
+ * Yik Surn Chong (yikc)
+ * Angeline Lim (angelinel)
+ */
+
+package aiproj.hexifence.yikc;
+
+import aiproj.hexifence.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+/* Zobrist class
+ * Random keys used to hash board positions. A position's hash is the XOR of
+ * the keys of every taken edge, every captured cell and the side to move, so
+ * it can be updated with a few XORs per move.
+ *
+ * Keys are generated from a fixed seed, so hashes are the same in every JVM
+ * and can be compared across self-play runs.
+ *
+ * The key of an edge or cell under a symmetry of the board is the key of
+ * the edge or cell it maps to, laid out by edge or cell and then symmetry,
+ * so a board can keep the hash of its position under every symmetry with
+ * one pass over consecutive keys per move
+ */
+public class Zobrist implements Piece {
+
+    private static final long SEED = 0x48657869L;
+
+    private static final HashMap<Integer, Zobrist> KEYS =
+        new HashMap<Integer, Zobrist>();
+
+    // Indexed by [player][edge or cell], player being BLUE or RED
+    private long[][] edgeKeys;
+    private long[][] cellKeys;
+
+    // Keys of an edge taken by either player, for hashes that only care
+    // about which edges are taken
+    private long[] takenKeys;
+
+    private long[] sideKeys;
+
+    // Indexed by [edge or cell * NUM_SYMMETRIES + symmetry], cell keys
+    // also by player
+    private long[] symmetricTakenKeys;
+    private long[][] symmetricCellKeys;
+
+    /* Return the shared keys of a board dimension
+     */
+    public static synchronized Zobrist forDimension(int boardDimension) {
+        Zobrist zobrist = KEYS.get(boardDimension);
+
+        if (zobrist == null) {
+            zobrist = new Zobrist(BoardLayout.forDimension(boardDimension));
+            KEYS.put(boardDimension, zobrist);
+        }
+        return zobrist;
+    }
+
+    private Zobrist(BoardLayout layout) {
+        int numEdges = layout.getNumEdges();
+        int numCells = layout.getNumCells();
+        Random random = new Random(SEED + layout.getBoardDimension());
+
+        this.edgeKeys = new long[RED + 1][numEdges];
+        this.cellKeys = new long[RED + 1][numCells];
+        this.takenKeys = new long[numEdges];
+        this.sideKeys = new long[RED + 1];
+
+        for (int player = BLUE; player <= RED; player++) {
+            for (int e = 0; e < numEdges; e++) {
+                this.edgeKeys[player][e] = random.nextLong();
+            }
+            for (int c = 0; c < numCells; c++) {
+                this.cellKeys[player][c] = random.nextLong();
+            }
+            this.sideKeys[player] = random.nextLong();
+        }
+        for (int e = 0; e < numEdges; e++) {
+            this.takenKeys[e] = random.nextLong();
+        }
+
+        int numSymmetries = BoardLayout.NUM_SYMMETRIES;
+        this.symmetricTakenKeys = new long[numEdges * numSymmetries];
+        this.symmetricCellKeys = new long[RED + 1][numCells * numSymmetries];
+        for (int s = 0; s < numSymmetries; s++) {
+            for (int e = 0; e < numEdges; e++) {
+                this.symmetricTakenKeys[e * numSymmetries + s] =
+                    this.takenKeys[layout.getSymmetricEdge(s, e)];
+            }
+            for (int player = BLUE; player <= RED; player++) {
+                for (int c = 0; c < numCells; c++) {
+                    this.symmetricCellKeys[player][c * numSymmetries + s] =
+                        this.cellKeys[player][layout.getSymmetricCell(s, c)];
+                }
+            }
+        }
+    }
+
+    public long getEdgeKey(int edge, int player) {
+        return this.edgeKeys[player][edge];
+    }
+
+    public long getTakenKey(int edge) {
+        return this.takenKeys[edge];
+    }
+
+    public long getCellKey(int cell, int player) {
+        return this.cellKeys[player][cell];
+    }
+
+    /* Return the key of the edge the symmetry maps an edge to
+     */
+    public long getSymmetricTakenKey(int edge, int symmetry) {
+        return this.symmetricTakenKeys[edge * BoardLayout.NUM_SYMMETRIES +
+            symmetry];
+    }
+
+    /* Return the key of the cell the symmetry maps a cell to
+     */
+    public long getSymmetricCellKey(int cell, int player, int symmetry) {
+        return this.symmetricCellKeys[player][cell *
+            BoardLayout.NUM_SYMMETRIES + symmetry];
+    }
+
+    public long getSideKey(int player) {
+        return this.sideKeys[player];
+    }
+
+}